@@ -0,0 +1,331 @@
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind wrapper around a NoteDAO.
+ * Writes are queued and applied by a single writer thread, so callers on the
+ * EDT never wait for SQLite. Repeated updates of the same note that are still
+ * queued collapse into the newest version, and everything queued while the
+ * previous group was being written is committed together in one transaction.
+ */
+public class AsyncNoteDAO {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private enum Kind { ADD, UPDATE, DELETE, DRAWING }
+
+    private static class PendingWrite {
+        final Kind kind;
+        final int id;
+        Note note; // replaced in place when a newer update coalesces into this one
+        EnumSet<NoteField> fields; // for UPDATE: the columns to write, null for the whole row
+        byte[] drawing; // for DRAWING: the stroke log, null to remove it; replaced when a newer one coalesces
+        final CompletableFuture<Note> future = new CompletableFuture<>();
+
+        PendingWrite(Kind kind, int id, Note note, EnumSet<NoteField> fields) {
+            this.kind = kind;
+            this.id = id;
+            this.note = note;
+            this.fields = fields;
+        }
+    }
+
+    private final NoteDAO dao;
+    private final Thread writer;
+    private final NoteEventBus events = new NoteEventBus();
+
+    private final Object lock = new Object();
+    // All guarded by lock
+    private final List<PendingWrite> queue = new ArrayList<>();
+    private final Map<Integer, PendingWrite> queuedUpdates = new HashMap<>();
+    private final Map<Integer, PendingWrite> unwritten = new HashMap<>(); // queued or in flight, by note id
+    private final Map<Integer, PendingWrite> queuedDrawings = new HashMap<>();
+    private final Map<Integer, PendingWrite> unwrittenDrawings = new HashMap<>();
+    private CompletableFuture<Note> lastWrite = CompletableFuture.completedFuture(null);
+    private boolean closed = false;
+
+    private long writesQueued = 0;
+    private long writesCoalesced = 0;
+    private long transactions = 0;
+
+    public AsyncNoteDAO(NoteDAO dao) {
+        this.dao = dao;
+        this.writer = new Thread(this::writeLoop, "note-writer");
+        writer.start();
+        // Flush whatever is still queued before the database goes away
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "note-writer-shutdown"));
+    }
+
+    /**
+     * Events for every write this wrapper commits, published from the
+     * writer thread after the commit.
+     */
+    public NoteEventBus getEventBus() {
+        return events;
+    }
+
+    /** Queues an insert. The future yields the note with its generated id. */
+    public CompletableFuture<Note> addNote(Note note) {
+        return enqueue(new PendingWrite(Kind.ADD, 0, note.copy(), null));
+    }
+
+    /**
+     * Queues an update. If an update of the same note is still waiting, it is
+     * replaced by this newer version and both callers share one future.
+     */
+    public CompletableFuture<Note> updateNote(Note note) {
+        return update(note, null);
+    }
+
+    /**
+     * Queues an update of only the given fields. Coalesced updates write the
+     * union of their fields, taken from the newest version of the note.
+     */
+    public CompletableFuture<Note> updateNoteFields(Note note, Set<NoteField> fields) {
+        return update(note, EnumSet.copyOf(fields));
+    }
+
+    private CompletableFuture<Note> update(Note note, EnumSet<NoteField> fields) {
+        Note snapshot = note.copy();
+        synchronized (lock) {
+            PendingWrite queued = queuedUpdates.get(note.getId());
+            if (queued != null) {
+                queued.note = snapshot;
+                if (queued.fields == null || fields == null) {
+                    queued.fields = null;
+                } else {
+                    queued.fields.addAll(fields);
+                }
+                writesCoalesced++;
+                return queued.future;
+            }
+        }
+        return enqueue(new PendingWrite(Kind.UPDATE, note.getId(), snapshot, fields));
+    }
+
+    /** Queues a delete. A still-queued update of the same note is dropped. */
+    public CompletableFuture<Void> deleteNote(int id) {
+        PendingWrite dropped;
+        PendingWrite droppedDrawing;
+        synchronized (lock) {
+            dropped = queuedUpdates.remove(id);
+            if (dropped != null) queue.remove(dropped);
+            droppedDrawing = queuedDrawings.remove(id);
+            if (droppedDrawing != null) {
+                queue.remove(droppedDrawing);
+                unwrittenDrawings.remove(id, droppedDrawing);
+            }
+        }
+        if (droppedDrawing != null) droppedDrawing.future.complete(null);
+        if (dropped != null) dropped.future.complete(dropped.note);
+        return enqueue(new PendingWrite(Kind.DELETE, id, null, null)).thenApply(n -> null);
+    }
+
+    /**
+     * Queues a save of a note's drawing (see StrokeLog); null removes it.
+     * A save of the same note that is still waiting takes the newer data.
+     */
+    public CompletableFuture<Void> saveDrawing(int noteId, byte[] strokes) {
+        synchronized (lock) {
+            PendingWrite queued = queuedDrawings.get(noteId);
+            if (queued != null) {
+                queued.drawing = strokes;
+                writesCoalesced++;
+                return queued.future.thenApply(n -> null);
+            }
+        }
+        PendingWrite write = new PendingWrite(Kind.DRAWING, noteId, null, null);
+        write.drawing = strokes;
+        return enqueue(write).thenApply(n -> null);
+    }
+
+    /**
+     * Reads a note's drawing, seeing saves that are queued but not yet
+     * committed. Blocks on the database, so call it off the EDT.
+     */
+    public byte[] getDrawing(int noteId) {
+        synchronized (lock) {
+            PendingWrite pending = unwrittenDrawings.get(noteId);
+            if (pending != null) return pending.drawing;
+            PendingWrite note = unwritten.get(noteId);
+            if (note != null && note.kind == Kind.DELETE) return null;
+        }
+        return dao.getDrawing(noteId);
+    }
+
+    /**
+     * Reads a note, seeing writes that are queued but not yet committed.
+     * Blocks on the database, so call it off the EDT.
+     */
+    public Note getNote(int id) {
+        synchronized (lock) {
+            PendingWrite pending = unwritten.get(id);
+            if (pending != null) {
+                return pending.kind == Kind.DELETE ? null : pending.note.copy();
+            }
+        }
+        return dao.getNote(id);
+    }
+
+    /** Completes once every write queued before this call has been committed. */
+    public CompletableFuture<Void> flush() {
+        synchronized (lock) {
+            return lastWrite.handle((n, e) -> null);
+        }
+    }
+
+    /** Writes everything still queued, then stops the writer and closes the DAO. */
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            System.out.println("Timed out flushing pending writes.");
+        }
+        System.out.println("Async writer stopped (" + getStats() + ").");
+        dao.close();
+    }
+
+    public String getStats() {
+        synchronized (lock) {
+            return "writes queued: " + writesQueued + ", coalesced: " + writesCoalesced
+                    + ", transactions: " + transactions;
+        }
+    }
+
+    private CompletableFuture<Note> enqueue(PendingWrite write) {
+        synchronized (lock) {
+            if (closed) {
+                write.future.completeExceptionally(new IllegalStateException("Writer is closed"));
+                return write.future;
+            }
+            queue.add(write);
+            if (write.kind == Kind.DRAWING) {
+                queuedDrawings.put(write.id, write);
+                unwrittenDrawings.put(write.id, write);
+            } else {
+                if (write.kind == Kind.UPDATE) queuedUpdates.put(write.id, write);
+                if (write.kind != Kind.ADD) unwritten.put(write.id, write);
+            }
+            lastWrite = write.future;
+            writesQueued++;
+            lock.notifyAll();
+        }
+        return write.future;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<PendingWrite> batch;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) return; // closed and drained
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                queuedUpdates.clear();
+                queuedDrawings.clear();
+                transactions++;
+            }
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        List<Note> results = new ArrayList<>(batch.size());
+        try {
+            dao.runInTransaction(d -> {
+                results.clear();
+                for (PendingWrite write : batch) {
+                    results.add(apply(d, write));
+                }
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), results.get(i), null);
+            }
+        } catch (RuntimeException groupFailure) {
+            // Retry one by one so a single bad write does not sink the rest.
+            // Each retry gets its own transaction: outside one the DAO only
+            // logs a failed write, and it would be reported as saved.
+            System.out.println("Grouped write failed, retrying individually: " + groupFailure.getMessage());
+            for (PendingWrite write : batch) {
+                try {
+                    Note[] result = new Note[1];
+                    dao.runInTransaction(d -> result[0] = apply(d, write));
+                    complete(write, result[0], null);
+                } catch (RuntimeException e) {
+                    complete(write, null, e);
+                }
+            }
+        }
+    }
+
+    private Note apply(NoteDAO d, PendingWrite write) {
+        switch (write.kind) {
+            case ADD:
+                Note added = d.addNote(write.note);
+                if (added == null) throw new IllegalStateException("Note could not be added");
+                return added.copy();
+            case UPDATE:
+                if (write.fields == null) {
+                    d.updateNote(write.note);
+                } else {
+                    d.updateNoteFields(write.note, write.fields);
+                }
+                return write.note;
+            case DRAWING:
+                d.saveDrawing(write.id, write.drawing);
+                return null;
+            default:
+                d.deleteNote(write.id);
+                return null;
+        }
+    }
+
+    private void complete(PendingWrite write, Note result, Throwable error) {
+        synchronized (lock) {
+            if (write.kind == Kind.DRAWING) {
+                unwrittenDrawings.remove(write.id, write);
+            } else {
+                unwritten.remove(write.id, write);
+            }
+        }
+        if (error != null) {
+            write.future.completeExceptionally(error);
+            return;
+        }
+        write.future.complete(result);
+        // Drawings are not part of the note list, so nothing listens for them
+        if (write.kind != Kind.DRAWING) events.publish(toEvent(write, result));
+    }
+
+    private static NoteEvent toEvent(PendingWrite write, Note result) {
+        switch (write.kind) {
+            case ADD:
+                return NoteEvent.created(result);
+            case UPDATE:
+                return NoteEvent.updated(result, write.fields);
+            default:
+                return NoteEvent.deleted(write.id);
+        }
+    }
+}
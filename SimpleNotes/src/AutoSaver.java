@@ -0,0 +1,118 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Debounced autosave for the editor.
+ * Edits mark fields dirty; once typing pauses for the idle delay the dirty
+ * fields are handed to the saver in one write. A steady stream of edits is
+ * still saved at least every maxDelay, so nothing sits unsaved for long.
+ * All methods must be called on the EDT.
+ */
+public class AutoSaver {
+
+    public enum Status { SAVED, UNSAVED, SAVING, FAILED }
+
+    /** Persists the given fields of the current note. */
+    public interface Saver {
+        CompletableFuture<?> save(Set<NoteField> dirtyFields);
+    }
+
+    private final Saver saver;
+    private final Timer idleTimer;
+    private final int maxDelayMs;
+
+    private final EnumSet<NoteField> dirty = EnumSet.noneOf(NoteField.class);
+    private long dirtySince = 0; // when the oldest unsaved edit was made, 0 if clean
+    private int savesInFlight = 0;
+    private int generation = 0; // bumped by reset() so late results for an old note are ignored
+    private Status status = Status.SAVED;
+    private Consumer<Status> statusListener;
+
+    public AutoSaver(int idleDelayMs, int maxDelayMs, Saver saver) {
+        this.saver = saver;
+        this.maxDelayMs = maxDelayMs;
+        this.idleTimer = new Timer(idleDelayMs, e -> save());
+        idleTimer.setRepeats(false);
+    }
+
+    public void setStatusListener(Consumer<Status> listener) {
+        this.statusListener = listener;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Sets how long typing must pause before changes are written. */
+    public void setIdleDelay(int ms) {
+        idleTimer.setInitialDelay(ms);
+        idleTimer.setDelay(ms);
+    }
+
+    /** Records an edit to a field and (re)starts the idle countdown. */
+    public void markDirty(NoteField field) {
+        dirty.add(field);
+        long now = System.currentTimeMillis();
+        if (dirtySince == 0) dirtySince = now;
+        if (savesInFlight == 0) setStatus(Status.UNSAVED);
+
+        if (now - dirtySince >= maxDelayMs) {
+            save();
+        } else {
+            idleTimer.restart();
+        }
+    }
+
+    /** Writes any dirty fields right away, e.g. before switching notes. */
+    public CompletableFuture<?> flushNow() {
+        idleTimer.stop();
+        return save();
+    }
+
+    /** Forgets unsaved edits without writing them, e.g. after loading a note. */
+    public void reset() {
+        idleTimer.stop();
+        dirty.clear();
+        dirtySince = 0;
+        generation++;
+        savesInFlight = 0;
+        setStatus(Status.SAVED);
+    }
+
+    private CompletableFuture<?> save() {
+        if (dirty.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        EnumSet<NoteField> fields = EnumSet.copyOf(dirty);
+        dirty.clear();
+        dirtySince = 0;
+        savesInFlight++;
+        setStatus(Status.SAVING);
+
+        // Overlapping saves are fine: the async DAO applies them in order
+        int saveGeneration = generation;
+        CompletableFuture<?> result = saver.save(fields);
+        result.whenComplete((r, error) -> SwingUtilities.invokeLater(() -> {
+            if (saveGeneration != generation) return;
+            savesInFlight--;
+            if (error != null) {
+                System.out.println("Autosave failed: " + error.getMessage());
+                dirty.addAll(fields); // Retried with the next edit or flush
+                if (dirtySince == 0) dirtySince = System.currentTimeMillis();
+                setStatus(Status.FAILED);
+            } else if (savesInFlight == 0) {
+                setStatus(dirty.isEmpty() ? Status.SAVED : Status.UNSAVED);
+            }
+        }));
+        return result;
+    }
+
+    private void setStatus(Status newStatus) {
+        if (status == newStatus) return;
+        status = newStatus;
+        if (statusListener != null) statusListener.accept(newStatus);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * A notebook as the sidebar lists it. Notes refer to it by id; the count
+ * is kept by the database as notes are added, moved and deleted, so reading
+ * it never scans the notes.
+ */
+public class Category {
+    private final int id;
+    private final String name;
+    private final int noteCount;
+
+    public Category(int id, String name, int noteCount) {
+        this.id = id;
+        this.name = name;
+        this.noteCount = noteCount;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNoteCount() {
+        return noteCount;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
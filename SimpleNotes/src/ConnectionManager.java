@@ -0,0 +1,224 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps SQLite connections open for the lifetime of the app.
+ * One writer connection serialises every write, a small pool of read
+ * connections serves queries, and each connection caches its prepared
+ * statements by SQL string so repeated calls skip the parse step.
+ */
+public class ConnectionManager {
+
+    /** A unit of JDBC work run against a borrowed connection. */
+    public interface SqlWork<T> {
+        T run(PooledConnection conn) throws SQLException;
+    }
+
+    /** A connection together with its prepared statement cache. */
+    public class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the cached statement for this SQL, preparing it on first use.
+         * Callers must not close the returned statement; they should close
+         * any ResultSet they open from it.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return cached(sql, sql, Statement.NO_GENERATED_KEYS);
+        }
+
+        /** Like {@link #prepare}, for INSERTs whose generated keys are read back. */
+        public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+            return cached("KEYS:" + sql, sql, Statement.RETURN_GENERATED_KEYS);
+        }
+
+        private PreparedStatement cached(String key, String sql, int autoGeneratedKeys) throws SQLException {
+            PreparedStatement stmt = statements.get(key);
+            if (stmt != null) {
+                statementsReused.incrementAndGet();
+                stmt.clearParameters();
+                return stmt;
+            }
+            stmt = connection.prepareStatement(sql, autoGeneratedKeys);
+            statements.put(key, stmt);
+            statementsPrepared.incrementAndGet();
+            return stmt;
+        }
+
+        private void close() {
+            for (PreparedStatement stmt : statements.values()) {
+                try {
+                    stmt.close();
+                } catch (SQLException ignored) {}
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private final PooledConnection writer;
+    private final List<PooledConnection> allReaders = new ArrayList<>();
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private int transactionDepth = 0; // guarded by writeLock
+
+    private final AtomicLong statementsPrepared = new AtomicLong();
+    private final AtomicLong statementsReused = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public ConnectionManager(String url, int readPoolSize) throws SQLException {
+        Connection writeConn = DriverManager.getConnection(url);
+        try (Statement stmt = writeConn.createStatement()) {
+            // WAL lets the read connections keep working while a write is in progress
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+        }
+        writer = new PooledConnection(writeConn);
+
+        int size = Math.max(1, readPoolSize);
+        idleReaders = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Connection readConn = DriverManager.getConnection(url);
+            try (Statement stmt = readConn.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout=5000");
+                stmt.execute("PRAGMA query_only=true");
+            }
+            PooledConnection pooled = new PooledConnection(readConn);
+            allReaders.add(pooled);
+            idleReaders.add(pooled);
+        }
+    }
+
+    /**
+     * Runs read-only work on a pooled read connection. A thread that already
+     * holds the writer (for example inside a write) reads through the writer
+     * so it sees its own changes.
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        if (writeLock.isHeldByCurrentThread()) {
+            return work.run(writer);
+        }
+        PooledConnection conn;
+        try {
+            conn = idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        try {
+            return work.run(conn);
+        } finally {
+            idleReaders.offer(conn);
+        }
+    }
+
+    /** Runs work on the single writer connection, one thread at a time. */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        writeLock.lock();
+        try {
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs work on the writer connection inside a single transaction.
+     * Writes made by the same thread while the transaction is open, including
+     * nested transactions, join it. The outermost call commits, or rolls back
+     * if the work throws.
+     */
+    public <T> T transaction(SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        writeLock.lock();
+        try {
+            Connection conn = writer.getConnection();
+            boolean outermost = transactionDepth == 0;
+            if (outermost) conn.setAutoCommit(false);
+            transactionDepth++;
+            boolean success = false;
+            try {
+                T result = work.run(writer);
+                success = true;
+                return result;
+            } finally {
+                transactionDepth--;
+                if (outermost) {
+                    try {
+                        if (success) {
+                            conn.commit();
+                        } else {
+                            conn.rollback();
+                        }
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** True if the calling thread is inside {@link #transaction}. */
+    public boolean inTransaction() {
+        return writeLock.isHeldByCurrentThread() && transactionDepth > 0;
+    }
+
+    public long getStatementsPrepared() {
+        return statementsPrepared.get();
+    }
+
+    public long getStatementsReused() {
+        return statementsReused.get();
+    }
+
+    public String getStats() {
+        return "statements prepared: " + statementsPrepared.get()
+                + ", reused: " + statementsReused.get();
+    }
+
+    /** Closes every connection. Safe to call more than once. */
+    public void close() {
+        if (closed) return;
+        writeLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            writer.close();
+            for (PooledConnection reader : allReaders) {
+                reader.close();
+            }
+            System.out.println("Database connections closed (" + getStats() + ").");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection manager is closed");
+    }
+}
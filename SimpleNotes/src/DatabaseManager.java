@@ -1,18 +1,20 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Date;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class DatabaseManager implements NoteDAO {
 
-    private static boolean useInMemory = false;
-    private static List<Note> memoryNotes = new ArrayList<>();
-    private static int memoryIdCounter = 1;
+    private static volatile boolean useInMemory = false;
+    private static final MemoryNoteStore memoryStore = new MemoryNoteStore();
 
-    // 1. Load the SQLite Driver
-    static {
+    // 1. Load the SQLite Driver; called from setup() so it stays off the UI's startup path
+    private static void loadDriver() {
         try {
             Class.forName("org.sqlite.JDBC");
         } catch (ClassNotFoundException e) {
@@ -23,108 +25,211 @@ public class DatabaseManager implements NoteDAO {
 
     // 2. Use the SQLite Connection String
     private static final String DB_URL = "jdbc:sqlite:notes.db";
+    private static final int READ_POOL_SIZE = 3;
 
-    private Connection connect() throws SQLException {
+    private static final String INSERT_SQL = "INSERT INTO notes(title, content, last_modified, background_color, font_family, category_id, preview) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE notes SET title = ?, content = ?, last_modified = ?, background_color = ?, font_family = ?, category_id = ?, preview = ? WHERE id = ?";
+    // Notes are read with their notebook's name in place of its id
+    private static final String SELECT_NOTES = "SELECT n.*, c.name AS category FROM notes n LEFT JOIN categories c ON c.id = n.category_id";
+    private static final String DEFAULT_CATEGORY = "Personal";
+
+    // Rows per transaction when filling in previews for notes saved before the column existed
+    private static final int BACKFILL_BATCH_SIZE = 200;
+    private static final String DELETE_SQL = "DELETE FROM notes WHERE id = ?";
+
+    private ConnectionManager connections;
+    // Notebook ids by name. Notebooks are never renamed or removed, so an id
+    // stays valid once it has been committed.
+    private final Map<String, Integer> categoryIds = new ConcurrentHashMap<>();
+
+    private ConnectionManager connections() throws SQLException {
         if (useInMemory) throw new SQLException("Running in In-Memory mode");
-        return DriverManager.getConnection(DB_URL);
+        if (connections == null) throw new SQLException("Database has not been set up");
+        return connections;
+    }
+
+    private static Note readNote(ResultSet rs) throws SQLException {
+        return new Note(
+                rs.getInt("id"),
+                rs.getString("title"),
+                rs.getString("content"),
+                new Date(rs.getLong("last_modified")),
+                rs.getString("background_color"),
+                rs.getString("font_family"),
+                rs.getString("category")
+        );
+    }
+
+    // The id of a note's notebook, created on first use. An id created inside
+    // a transaction is only cached once it is seen outside one, since a
+    // rollback would take the row away again.
+    private int categoryId(ConnectionManager.PooledConnection conn, String name) throws SQLException {
+        String key = name != null ? name : DEFAULT_CATEGORY;
+        Integer cached = categoryIds.get(key);
+        if (cached != null) return cached;
+
+        PreparedStatement create = conn.prepare("INSERT OR IGNORE INTO categories(name) VALUES(?)");
+        create.setString(1, key);
+        create.executeUpdate();
+        PreparedStatement find = conn.prepare("SELECT id FROM categories WHERE name = ?");
+        find.setString(1, key);
+        int id;
+        try (ResultSet rs = find.executeQuery()) {
+            if (!rs.next()) throw new SQLException("Notebook not created: " + key);
+            id = rs.getInt(1);
+        }
+        if (!connections.inTransaction()) categoryIds.put(key, id);
+        return id;
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, Note note, int categoryId) throws SQLException {
+        pstmt.setString(1, note.getTitle());
+        pstmt.setString(2, note.getContent());
+        pstmt.setLong(3, note.getLastModified().getTime());
+        pstmt.setString(4, note.getBackgroundColor());
+        pstmt.setString(5, note.getFontFamily());
+        pstmt.setInt(6, categoryId);
+        pstmt.setString(7, PreviewText.of(note.getContent()));
+    }
+
+    private static void bindUpdate(PreparedStatement pstmt, Note note, int categoryId, long now) throws SQLException {
+        pstmt.setString(1, note.getTitle());
+        pstmt.setString(2, note.getContent());
+        pstmt.setLong(3, now);
+        pstmt.setString(4, note.getBackgroundColor());
+        pstmt.setString(5, note.getFontFamily());
+        pstmt.setInt(6, categoryId);
+        pstmt.setString(7, PreviewText.of(note.getContent()));
+        pstmt.setInt(8, note.getId());
+    }
+
+    // Inside runInTransaction a failed write must abort the whole transaction,
+    // so it is rethrown instead of just being logged.
+    private void fail(String message, SQLException e) {
+        if (connections != null && connections.inTransaction()) {
+            throw new RuntimeException(message + ": " + e.getMessage(), e);
+        }
+        System.out.println(message + ": " + e.getMessage());
     }
 
     @Override
     public void setup() throws SQLException {
+        loadDriver();
         if (useInMemory) {
             System.out.println("Database setup skipped (In-Memory mode).");
             return;
         }
-        // SQLite syntax to create the table
-        String sql = "CREATE TABLE IF NOT EXISTS notes ("
-                + " id INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + " title TEXT NOT NULL,"
-                + " content TEXT,"
-                + " last_modified INTEGER NOT NULL,"
-                + " background_color TEXT,"
-                + " font_family TEXT,"
-                + " category TEXT"
-                + ");";
-
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            
-            // Check if columns exist (migration for old db)
-            try {
-                stmt.execute("ALTER TABLE notes ADD COLUMN background_color TEXT");
-            } catch (SQLException ignored) {}
-            try {
-                stmt.execute("ALTER TABLE notes ADD COLUMN font_family TEXT");
-            } catch (SQLException ignored) {}
-            try {
-                stmt.execute("ALTER TABLE notes ADD COLUMN category TEXT");
-            } catch (SQLException ignored) {}
-            
-            System.out.println("Database setup completed.");
+
+        if (connections == null) {
+            connections = new ConnectionManager(DB_URL, READ_POOL_SIZE);
         }
+
+        int applied = SchemaMigrations.migrate(connections());
+        System.out.println("Database setup completed (schema version " + SchemaMigrations.latestVersion()
+                + (applied > 0 ? ", " + applied + " migrations applied" : "") + ").");
+        startPreviewBackfill();
     }
 
-    @Override
-    public void addNote(Note note) {
-        if (useInMemory) {
+    // Fills in previews for rows written before the column existed, a batch
+    // per transaction so saves from the UI are never held up for long.
+    // Until a row is done, getNoteSummaries falls back to a prefix of content.
+    private void startPreviewBackfill() {
+        Thread backfill = new Thread(() -> {
+            int filled = 0;
             try {
-                java.lang.reflect.Field idField = Note.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                idField.setInt(note, memoryIdCounter++);
-            } catch (Exception e) {
-                e.printStackTrace();
+                while (true) {
+                    int batch = connections().transaction(conn -> {
+                        List<Integer> ids = new ArrayList<>();
+                        List<String> previews = new ArrayList<>();
+                        PreparedStatement select = conn.prepare("SELECT id, content FROM notes WHERE preview IS NULL LIMIT ?");
+                        select.setInt(1, BACKFILL_BATCH_SIZE);
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) {
+                                ids.add(rs.getInt(1));
+                                previews.add(PreviewText.of(rs.getString(2)));
+                            }
+                        }
+                        PreparedStatement update = conn.prepare("UPDATE notes SET preview = ? WHERE id = ?");
+                        for (int i = 0; i < ids.size(); i++) {
+                            update.setString(1, previews.get(i));
+                            update.setInt(2, ids.get(i));
+                            update.addBatch();
+                        }
+                        if (!ids.isEmpty()) update.executeBatch();
+                        return ids.size();
+                    });
+                    filled += batch;
+                    if (batch < BACKFILL_BATCH_SIZE) break;
+                }
+                if (filled > 0) System.out.println("Previews backfilled: " + filled);
+            } catch (SQLException e) {
+                // Also ends here if the app closes first; the rest is picked up next start
+                System.out.println("Preview backfill stopped: " + e.getMessage());
             }
-            memoryNotes.add(note);
-            System.out.println("Note added (In-Memory): " + note.getTitle());
-            return;
-        }
-        
-        String sql = "INSERT INTO notes(title, content, last_modified, background_color, font_family, category) VALUES(?, ?, ?, ?, ?, ?)";
+        }, "preview-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * Closes the pooled connections. AsyncNoteDAO calls this from its
+     * shutdown hook once the pending writes are flushed.
+     */
+    @Override
+    public void close() {
+        if (connections != null) connections.close();
+    }
 
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /** Statement cache counters, or an empty string in In-Memory mode. */
+    public String getConnectionStats() {
+        return connections != null ? connections.getStats() : "";
+    }
 
-            pstmt.setString(1, note.getTitle());
-            pstmt.setString(2, note.getContent());
-            pstmt.setLong(3, note.getLastModified().getTime());
-            pstmt.setString(4, note.getBackgroundColor());
-            pstmt.setString(5, note.getFontFamily());
-            pstmt.setString(6, note.getCategory());
+    @Override
+    public Note addNote(Note note) {
+        if (useInMemory) {
+            memoryStore.add(note);
+            System.out.println("Note added (In-Memory): " + note.getTitle());
+            return note;
+        }
 
-            pstmt.executeUpdate();
+        try {
+            int id = connections().write(conn -> {
+                int categoryId = categoryId(conn, note.getCategory());
+                PreparedStatement pstmt = conn.prepareReturningKeys(INSERT_SQL);
+                bindInsert(pstmt, note, categoryId);
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (!keys.next()) throw new SQLException("No id generated for new note");
+                    return keys.getInt(1);
+                }
+            });
+            note.setId(id);
             System.out.println("Note added: " + note.getTitle());
+            return note;
 
         } catch (SQLException e) {
-            System.out.println("Error adding note: " + e.getMessage());
+            fail("Error adding note", e);
         }
+        return null;
     }
 
     @Override
     public Note getNote(int id) {
         if (useInMemory) {
-            return memoryNotes.stream().filter(n -> n.getId() == id).findFirst().orElse(null);
+            return memoryStore.get(id);
         }
         
-        String sql = "SELECT * FROM notes WHERE id = ?";
-
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String sql = SELECT_NOTES + " WHERE n.id = ?";
 
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return new Note(
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("content"),
-                        new Date(rs.getLong("last_modified")),
-                        rs.getString("background_color"),
-                        rs.getString("font_family"),
-                        rs.getString("category")
-                );
-            }
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? readNote(rs) : null;
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error getting note: " + e.getMessage());
         }
@@ -134,90 +239,661 @@ public class DatabaseManager implements NoteDAO {
     @Override
     public List<Note> getAllNotes() {
         if (useInMemory) {
-            List<Note> sorted = new ArrayList<>(memoryNotes);
-            sorted.sort((n1, n2) -> n2.getLastModified().compareTo(n1.getLastModified()));
-            return sorted;
+            return memoryStore.all();
         }
         
-        List<Note> notes = new ArrayList<>();
-        String sql = "SELECT * FROM notes ORDER BY last_modified DESC";
+        String sql = SELECT_NOTES + " ORDER BY n.last_modified DESC";
 
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            return connections().read(conn -> {
+                List<Note> notes = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        notes.add(readNote(rs));
+                    }
+                }
+                return notes;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading notes: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
 
-            while (rs.next()) {
-                Note note = new Note(
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("content"),
-                        new Date(rs.getLong("last_modified")),
-                        rs.getString("background_color"),
-                        rs.getString("font_family"),
-                        rs.getString("category")
-                );
-                notes.add(note);
+    @Override
+    public List<Note> getNotesPage(String category, long afterLastModified, int afterId, int limit) {
+        if (useInMemory) {
+            return memoryStore.page(category, afterLastModified, afterId, limit);
+        }
+
+        // Row-value comparison lets SQLite seek straight to the cursor in
+        // idx_notes_category_id_modified instead of skipping over earlier rows
+        String sql = SELECT_NOTES + " WHERE n.category_id = (SELECT id FROM categories WHERE name = ?)"
+                + " AND (n.last_modified, n.id) < (?, ?)"
+                + " ORDER BY n.last_modified DESC, n.id DESC LIMIT ?";
+
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, category);
+                pstmt.setLong(2, afterLastModified);
+                pstmt.setInt(3, afterId);
+                pstmt.setInt(4, limit);
+
+                List<Note> notes = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        notes.add(readNote(rs));
+                    }
+                }
+                return notes;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading notes page: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<NoteSummary> getNoteSummaries(String category, long afterLastModified, int afterId, int limit) {
+        if (useInMemory) {
+            List<NoteSummary> summaries = new ArrayList<>();
+            for (Note n : getNotesPage(category, afterLastModified, afterId, limit)) {
+                summaries.add(NoteSummary.of(n));
             }
+            return summaries;
+        }
+
+        // The stored preview is read instead of content, so list rows never load note bodies.
+        // Rows the backfill has not reached yet fall back to a prefix of content.
+        String sql = "SELECT n.id, n.title, COALESCE(n.preview, replace(substr(n.content, 1, " + PreviewText.MAX_LENGTH + "), char(10), ' ')) AS preview,"
+                + " n.last_modified, c.name AS category FROM notes n JOIN categories c ON c.id = n.category_id"
+                + " WHERE n.category_id = (SELECT id FROM categories WHERE name = ?) AND (n.last_modified, n.id) < (?, ?)"
+                + " ORDER BY n.last_modified DESC, n.id DESC LIMIT ?";
+
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, category);
+                pstmt.setLong(2, afterLastModified);
+                pstmt.setInt(3, afterId);
+                pstmt.setInt(4, limit);
+
+                List<NoteSummary> summaries = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        summaries.add(new NoteSummary(
+                                rs.getInt("id"),
+                                rs.getString("title"),
+                                rs.getString("preview"),
+                                new Date(rs.getLong("last_modified")),
+                                rs.getString("category")
+                        ));
+                    }
+                }
+                return summaries;
+            });
         } catch (SQLException e) {
-            System.out.println("Error loading notes: " + e.getMessage());
+            System.out.println("Error loading note summaries: " + e.getMessage());
         }
-        return notes;
+        return new ArrayList<>();
     }
 
     @Override
     public void updateNote(Note note) {
         if (useInMemory) {
-            Note existing = getNote(note.getId());
-            if (existing != null) {
+            long now = new Date().getTime();
+            boolean updated = memoryStore.update(note.getId(), existing -> {
+                memoryStore.recordRevision(existing.getId(), existing.getContent(), note.getContent(), now);
                 existing.setTitle(note.getTitle());
                 existing.setContent(note.getContent());
-                existing.setLastModified(new Date());
+                existing.setLastModified(new Date(now));
                 existing.setCategory(note.getCategory());
+            });
+            if (updated) {
+                note.setLastModified(new Date(now));
                 System.out.println("Note updated (In-Memory): " + note.getTitle());
             }
             return;
         }
-        
-        String sql = "UPDATE notes SET title = ?, content = ?, last_modified = ?, background_color = ?, font_family = ?, category = ? WHERE id = ?";
 
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try {
+            connections().transaction(conn -> {
+                long now = new Date().getTime();
+                String oldContent = currentContent(conn, note.getId());
+                int categoryId = categoryId(conn, note.getCategory());
+                PreparedStatement pstmt = conn.prepare(UPDATE_SQL);
+                bindUpdate(pstmt, note, categoryId, now);
+                int updated = pstmt.executeUpdate();
+                if (updated > 0) {
+                    recordRevision(conn, note.getId(), oldContent, note.getContent(), now);
+                    note.setLastModified(new Date(now));
+                }
+                return updated;
+            });
+            System.out.println("Note updated: " + note.getTitle());
 
-            pstmt.setString(1, note.getTitle());
-            pstmt.setString(2, note.getContent());
-            pstmt.setLong(3, new Date().getTime());
-            pstmt.setString(4, note.getBackgroundColor());
-            pstmt.setString(5, note.getFontFamily());
-            pstmt.setString(6, note.getCategory());
-            pstmt.setInt(7, note.getId());
+        } catch (SQLException e) {
+            fail("Error updating note", e);
+        }
+    }
 
-            pstmt.executeUpdate();
-            System.out.println("Note updated: " + note.getTitle());
+    @Override
+    public void updateNoteFields(Note note, Set<NoteField> fields) {
+        if (fields.isEmpty()) return;
+        if (useInMemory) {
+            long now = new Date().getTime();
+            boolean updated = memoryStore.update(note.getId(), existing -> {
+                if (fields.contains(NoteField.CONTENT)) {
+                    memoryStore.recordRevision(existing.getId(), existing.getContent(), note.getContent(), now);
+                }
+                for (NoteField field : fields) field.copy(note, existing);
+                existing.setLastModified(new Date(now));
+            });
+            if (updated) {
+                note.setLastModified(new Date(now));
+                System.out.println("Note updated (In-Memory): " + note.getTitle() + " " + fields);
+            }
+            return;
+        }
+
+        // One SQL string per field combination, each cached by the connection
+        StringBuilder sql = new StringBuilder("UPDATE notes SET ");
+        for (NoteField field : NoteField.values()) {
+            if (fields.contains(field)) sql.append(field.getColumn()).append(" = ?, ");
+        }
+        if (fields.contains(NoteField.CONTENT)) sql.append("preview = ?, ");
+        sql.append("last_modified = ? WHERE id = ?");
+
+        try {
+            connections().transaction(conn -> {
+                long now = new Date().getTime();
+                boolean contentChanged = fields.contains(NoteField.CONTENT);
+                String oldContent = contentChanged ? currentContent(conn, note.getId()) : null;
+                PreparedStatement pstmt = conn.prepare(sql.toString());
+                int i = 1;
+                for (NoteField field : NoteField.values()) {
+                    if (!fields.contains(field)) continue;
+                    if (field == NoteField.CATEGORY) {
+                        pstmt.setInt(i++, categoryId(conn, note.getCategory()));
+                    } else {
+                        pstmt.setString(i++, field.get(note));
+                    }
+                }
+                if (contentChanged) pstmt.setString(i++, PreviewText.of(note.getContent()));
+                pstmt.setLong(i++, now);
+                pstmt.setInt(i, note.getId());
+                int updated = pstmt.executeUpdate();
+                if (updated > 0) {
+                    if (contentChanged) recordRevision(conn, note.getId(), oldContent, note.getContent(), now);
+                    note.setLastModified(new Date(now));
+                }
+                return updated;
+            });
+            System.out.println("Note updated: " + note.getTitle() + " " + fields);
 
         } catch (SQLException e) {
-            System.out.println("Error updating note: " + e.getMessage());
+            fail("Error updating note", e);
         }
     }
 
     @Override
     public void deleteNote(int id) {
         if (useInMemory) {
-            memoryNotes.removeIf(n -> n.getId() == id);
+            memoryStore.remove(id);
             System.out.println("Note deleted (In-Memory): " + id);
             return;
         }
-        
-        String sql = "DELETE FROM notes WHERE id = ?";
-
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        try {
+            connections().write(conn -> {
+                PreparedStatement pstmt = conn.prepare(DELETE_SQL);
+                pstmt.setInt(1, id);
+                return pstmt.executeUpdate();
+            });
             System.out.println("Note deleted with ID: " + id);
 
         } catch (SQLException e) {
-            System.out.println("Error deleting note: " + e.getMessage());
+            fail("Error deleting note", e);
+        }
+    }
+
+    @Override
+    public void addNotes(List<Note> notes) {
+        if (notes.isEmpty()) return;
+        if (useInMemory) {
+            runInTransaction(dao -> notes.forEach(dao::addNote));
+            return;
+        }
+
+        try {
+            connections().transaction(conn -> {
+                int[] notebookIds = new int[notes.size()];
+                for (int i = 0; i < notes.size(); i++) {
+                    notebookIds[i] = categoryId(conn, notes.get(i).getCategory());
+                }
+                PreparedStatement pstmt = conn.prepare(INSERT_SQL);
+                for (int i = 0; i < notes.size(); i++) {
+                    Note note = notes.get(i);
+                    bindInsert(pstmt, note, notebookIds[i]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+
+                // The batch runs under the writer lock in one transaction, so
+                // AUTOINCREMENT hands out consecutive ids ending at the last rowid
+                int lastId;
+                try (ResultSet rs = conn.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                    rs.next();
+                    lastId = rs.getInt(1);
+                }
+                int id = lastId - notes.size() + 1;
+                for (Note note : notes) {
+                    note.setId(id++);
+                }
+                return null;
+            });
+            System.out.println("Notes added: " + notes.size());
+
+        } catch (SQLException e) {
+            fail("Error adding notes", e);
+        }
+    }
+
+    @Override
+    public void updateNotes(List<Note> notes) {
+        if (notes.isEmpty()) return;
+        if (useInMemory) {
+            runInTransaction(dao -> notes.forEach(dao::updateNote));
+            return;
+        }
+
+        try {
+            long now = new Date().getTime();
+            connections().transaction(conn -> {
+                List<String> oldContents = new ArrayList<>(notes.size());
+                for (Note note : notes) {
+                    oldContents.add(currentContent(conn, note.getId()));
+                }
+                int[] notebookIds = new int[notes.size()];
+                for (int i = 0; i < notes.size(); i++) {
+                    notebookIds[i] = categoryId(conn, notes.get(i).getCategory());
+                }
+                PreparedStatement pstmt = conn.prepare(UPDATE_SQL);
+                for (int i = 0; i < notes.size(); i++) {
+                    bindUpdate(pstmt, notes.get(i), notebookIds[i], now);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                for (int i = 0; i < notes.size(); i++) {
+                    Note note = notes.get(i);
+                    if (oldContents.get(i) == null) continue;
+                    recordRevision(conn, note.getId(), oldContents.get(i), note.getContent(), now);
+                    note.setLastModified(new Date(now));
+                }
+                return null;
+            });
+            System.out.println("Notes updated: " + notes.size());
+
+        } catch (SQLException e) {
+            fail("Error updating notes", e);
+        }
+    }
+
+    @Override
+    public void deleteNotes(Collection<Integer> ids) {
+        if (ids.isEmpty()) return;
+        if (useInMemory) {
+            runInTransaction(dao -> ids.forEach(dao::deleteNote));
+            return;
+        }
+
+        try {
+            connections().transaction(conn -> {
+                PreparedStatement pstmt = conn.prepare(DELETE_SQL);
+                for (int id : ids) {
+                    pstmt.setInt(1, id);
+                    pstmt.addBatch();
+                }
+                return pstmt.executeBatch();
+            });
+            System.out.println("Notes deleted: " + ids.size());
+
+        } catch (SQLException e) {
+            fail("Error deleting notes", e);
+        }
+    }
+
+    @Override
+    public void runInTransaction(Consumer<NoteDAO> work) {
+        if (useInMemory) {
+            // The store rolls itself back if the callback fails
+            memoryStore.transaction(() -> work.accept(this));
+            return;
+        }
+
+        try {
+            connections().transaction(conn -> {
+                work.accept(this);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Transaction failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(String query, String category, int limit) {
+        if (useInMemory) {
+            return memoryStore.search(query, category, limit);
+        }
+
+        String match = toFtsQuery(query);
+        if (match.isEmpty()) return new ArrayList<>();
+
+        String sql = "SELECT n.id, n.title, n.last_modified, c.name AS category,"
+                + " snippet(notes_fts, -1, '', '', '...', 10) AS snippet,"
+                + " bm25(notes_fts, 10.0, 1.0) AS rank"
+                + " FROM notes_fts JOIN notes n ON n.id = notes_fts.rowid"
+                + " LEFT JOIN categories c ON c.id = n.category_id"
+                + " WHERE notes_fts MATCH ?"
+                + (category != null ? " AND c.name = ?" : "")
+                + " ORDER BY rank LIMIT ?";
+
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                int i = 1;
+                pstmt.setString(i++, match);
+                if (category != null) pstmt.setString(i++, category);
+                pstmt.setInt(i, limit);
+
+                List<SearchHit> hits = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        hits.add(new SearchHit(
+                                rs.getInt("id"),
+                                rs.getString("title"),
+                                rs.getString("snippet"),
+                                new Date(rs.getLong("last_modified")),
+                                rs.getString("category"),
+                                rs.getDouble("rank")
+                        ));
+                    }
+                }
+                return hits;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error searching notes: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Category> getCategories() {
+        if (useInMemory) {
+            return memoryStore.categories();
+        }
+
+        String sql = "SELECT id, name, note_count FROM categories ORDER BY id";
+
+        try {
+            return connections().read(conn -> {
+                List<Category> categories = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        Category category = new Category(rs.getInt("id"), rs.getString("name"), rs.getInt("note_count"));
+                        categoryIds.put(category.getName(), category.getId());
+                        categories.add(category);
+                    }
+                }
+                return categories;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading notebooks: " + e.getMessage());
         }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Category addCategory(String name) {
+        if (useInMemory) {
+            return memoryStore.addCategory(name);
+        }
+
+        try {
+            Category category = connections().write(conn -> {
+                int id = categoryId(conn, name);
+                PreparedStatement pstmt = conn.prepare("SELECT note_count FROM categories WHERE id = ?");
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return new Category(id, name, rs.next() ? rs.getInt(1) : 0);
+                }
+            });
+            System.out.println("Notebook added: " + name);
+            return category;
+        } catch (SQLException e) {
+            fail("Error adding notebook", e);
+        }
+        return null;
+    }
+
+    @Override
+    public byte[] getDrawing(int noteId) {
+        if (useInMemory) {
+            return memoryStore.getDrawing(noteId);
+        }
+
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare("SELECT data FROM note_drawings WHERE note_id = ?");
+                pstmt.setInt(1, noteId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getBytes(1) : null;
+                }
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading drawing: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public void saveDrawing(int noteId, byte[] strokes) {
+        if (useInMemory) {
+            memoryStore.saveDrawing(noteId, strokes);
+            return;
+        }
+
+        try {
+            connections().write(conn -> {
+                if (strokes == null) {
+                    PreparedStatement pstmt = conn.prepare("DELETE FROM note_drawings WHERE note_id = ?");
+                    pstmt.setInt(1, noteId);
+                    return pstmt.executeUpdate();
+                }
+                // Selecting from notes skips notes deleted while the save was queued
+                PreparedStatement pstmt = conn.prepare("INSERT INTO note_drawings(note_id, data, updated_at)"
+                        + " SELECT id, ?, ? FROM notes WHERE id = ?"
+                        + " ON CONFLICT(note_id) DO UPDATE SET data = excluded.data, updated_at = excluded.updated_at");
+                pstmt.setBytes(1, strokes);
+                pstmt.setLong(2, new Date().getTime());
+                pstmt.setInt(3, noteId);
+                return pstmt.executeUpdate();
+            });
+            System.out.println("Drawing saved for note " + noteId + " (" + (strokes != null ? strokes.length : 0) + " bytes).");
+        } catch (SQLException e) {
+            fail("Error saving drawing", e);
+        }
+    }
+
+    // Turns free text into an FTS5 query: every word must match, as a prefix.
+    // Each word is quoted so characters like '-' or ':' are not read as operators.
+    private static String toFtsQuery(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            String cleaned = word.replace("\"", "");
+            if (cleaned.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append('"').append(cleaned).append("\"*");
+        }
+        return sb.toString();
+    }
+
+    // --- Revision history ---
+
+    // Content before an update; null if the note does not exist
+    private static String currentContent(ConnectionManager.PooledConnection conn, int id) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT content FROM notes WHERE id = ?");
+        pstmt.setInt(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) return null;
+            String content = rs.getString(1);
+            return content != null ? content : "";
+        }
+    }
+
+    // Appends a revision for a content change. The note row always holds the
+    // newest revision's text, so the delta is taken against oldContent.
+    private void recordRevision(ConnectionManager.PooledConnection conn, int noteId, String oldContent, String newContent, long now) throws SQLException {
+        if (newContent == null) newContent = "";
+        if (oldContent == null || oldContent.equals(newContent)) return;
+
+        int latest = 0;
+        int lastSnapshot = 0;
+        PreparedStatement meta = conn.prepare("SELECT MAX(revision), MAX(CASE WHEN is_snapshot = 1 THEN revision END)"
+                + " FROM note_revisions WHERE note_id = ?");
+        meta.setInt(1, noteId);
+        try (ResultSet rs = meta.executeQuery()) {
+            if (rs.next()) {
+                latest = rs.getInt(1);
+                lastSnapshot = rs.getInt(2);
+            }
+        }
+
+        List<RevisionLog.Entry> entries = new ArrayList<>(2);
+        int deltas;
+        if (latest == 0) {
+            // First recorded change: keep the text it replaced as the base
+            if (!oldContent.isEmpty()) entries.add(RevisionLog.Entry.snapshot(++latest, oldContent, now));
+            deltas = entries.isEmpty() ? RevisionLog.SNAPSHOT_INTERVAL : 0;
+        } else {
+            PreparedStatement count = conn.prepare("SELECT COUNT(*) FROM note_revisions WHERE note_id = ? AND revision > ?");
+            count.setInt(1, noteId);
+            count.setInt(2, lastSnapshot);
+            try (ResultSet rs = count.executeQuery()) {
+                deltas = rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+        entries.add(RevisionLog.next(oldContent, newContent, ++latest, deltas, now));
+        insertRevisions(conn, noteId, entries);
+
+        if (RevisionLog.shouldPrune(latest)) {
+            List<RevisionLog.Entry> kept = RevisionLog.thin(loadRevisions(conn, noteId, Integer.MAX_VALUE, 0), now);
+            PreparedStatement clear = conn.prepare("DELETE FROM note_revisions WHERE note_id = ?");
+            clear.setInt(1, noteId);
+            clear.executeUpdate();
+            insertRevisions(conn, noteId, kept);
+        }
+    }
+
+    private static void insertRevisions(ConnectionManager.PooledConnection conn, int noteId, List<RevisionLog.Entry> entries) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("INSERT INTO note_revisions(note_id, revision, created_at, is_snapshot, data, content_length)"
+                + " VALUES(?, ?, ?, ?, ?, ?)");
+        for (RevisionLog.Entry entry : entries) {
+            pstmt.setInt(1, noteId);
+            pstmt.setInt(2, entry.revision);
+            pstmt.setLong(3, entry.createdAt);
+            pstmt.setInt(4, entry.snapshot ? 1 : 0);
+            pstmt.setBytes(5, entry.data);
+            pstmt.setInt(6, entry.contentLength);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+
+    // Revisions in [fromRevision, upToRevision], oldest first
+    private static List<RevisionLog.Entry> loadRevisions(ConnectionManager.PooledConnection conn, int noteId, int upToRevision, int fromRevision) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT revision, created_at, is_snapshot, data, content_length FROM note_revisions"
+                + " WHERE note_id = ? AND revision BETWEEN ? AND ? ORDER BY revision");
+        pstmt.setInt(1, noteId);
+        pstmt.setInt(2, fromRevision);
+        pstmt.setInt(3, upToRevision);
+        List<RevisionLog.Entry> entries = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new RevisionLog.Entry(rs.getInt(1), rs.getLong(2), rs.getInt(3) == 1, rs.getBytes(4), rs.getInt(5)));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public List<NoteRevision> getRevisions(int noteId) {
+        List<NoteRevision> revisions = new ArrayList<>();
+        if (useInMemory) {
+            List<RevisionLog.Entry> history = memoryStore.revisions(noteId);
+            for (int i = history.size() - 1; i >= 0; i--) {
+                RevisionLog.Entry e = history.get(i);
+                revisions.add(new NoteRevision(noteId, e.revision, new Date(e.createdAt), e.snapshot, e.contentLength, e.data.length));
+            }
+            return revisions;
+        }
+
+        String sql = "SELECT revision, created_at, is_snapshot, content_length, length(data) FROM note_revisions"
+                + " WHERE note_id = ? ORDER BY revision DESC";
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, noteId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        revisions.add(new NoteRevision(noteId, rs.getInt(1), new Date(rs.getLong(2)),
+                                rs.getInt(3) == 1, rs.getInt(4), rs.getInt(5)));
+                    }
+                }
+                return revisions;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading revisions: " + e.getMessage());
+        }
+        return revisions;
+    }
+
+    @Override
+    public String getRevisionContent(int noteId, int revision) {
+        if (useInMemory) {
+            List<RevisionLog.Entry> history = memoryStore.revisions(noteId);
+            int end = -1;
+            for (int i = 0; i < history.size(); i++) {
+                if (history.get(i).revision == revision) end = i;
+            }
+            if (end < 0) return null;
+            int start = end;
+            while (!history.get(start).snapshot) start--;
+            return RevisionLog.reconstruct(history.subList(start, end + 1));
+        }
+
+        String sql = "SELECT MAX(revision) FROM note_revisions WHERE note_id = ? AND revision <= ? AND is_snapshot = 1";
+        try {
+            return connections().read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, noteId);
+                pstmt.setInt(2, revision);
+                int snapshot;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return null;
+                    snapshot = rs.getInt(1);
+                    if (rs.wasNull()) return null;
+                }
+                // At most SNAPSHOT_INTERVAL rows: the snapshot and the deltas after it
+                List<RevisionLog.Entry> chain = loadRevisions(conn, noteId, revision, snapshot);
+                if (chain.isEmpty() || chain.get(chain.size() - 1).revision != revision) return null;
+                return RevisionLog.reconstruct(chain);
+            });
+        } catch (SQLException e) {
+            System.out.println("Error loading revision: " + e.getMessage());
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo and redo for the drawing canvas. Each step keeps only the pixels
+ * its change overwrote (a TiledCanvas.Patch cropped to the changed box)
+ * plus the strokes it added to or removed from the StrokeLog, so undoing
+ * is a swap of those pixels and never touches the rest of the canvas.
+ * The saved pixels are kept within a memory budget; when it is exceeded
+ * the oldest steps are forgotten first. Must be used on the EDT.
+ */
+public class DrawingHistory {
+
+    /** One change: the log kept its first keep strokes, then removed and added the given ones. */
+    public static final class Step {
+        private final TiledCanvas.Patch patch;
+        private final int keep;
+        private final List<StrokeLog.Stroke> removed;
+        private final List<StrokeLog.Stroke> added;
+        private long bytes;
+
+        public Step(TiledCanvas.Patch patch, int keep, List<StrokeLog.Stroke> removed, List<StrokeLog.Stroke> added) {
+            this.patch = patch;
+            this.keep = keep;
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+
+    // Oldest first; the newest step is at the end of each
+    private final Deque<Step> undo = new ArrayDeque<>();
+    private final Deque<Step> redo = new ArrayDeque<>();
+    private long budgetBytes;
+    private long usedBytes;
+
+    public DrawingHistory(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public void setBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trim();
+    }
+
+    /** Adds a change that has just been made. Anything that could be redone is dropped. */
+    public void record(Step step) {
+        for (Step dropped : redo) usedBytes -= dropped.bytes;
+        redo.clear();
+        step.bytes = step.patch.getBytes();
+        usedBytes += step.bytes;
+        undo.addLast(step);
+        trim();
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /** Reverts the newest change on the canvas and in the log. */
+    public boolean undo(TiledCanvas canvas, StrokeLog log) {
+        Step step = undo.pollLast();
+        if (step == null) return false;
+        apply(step, canvas);
+        log.truncate(step.keep);
+        log.appendAll(step.removed);
+        redo.addLast(step);
+        trim();
+        return true;
+    }
+
+    /** Makes the most recently undone change again. */
+    public boolean redo(TiledCanvas canvas, StrokeLog log) {
+        Step step = redo.pollLast();
+        if (step == null) return false;
+        apply(step, canvas);
+        log.truncate(step.keep);
+        log.appendAll(step.added);
+        undo.addLast(step);
+        trim();
+        return true;
+    }
+
+    // Swapping changes which pixels the patch holds, and so its size
+    private void apply(Step step, TiledCanvas canvas) {
+        usedBytes -= step.bytes;
+        canvas.swap(step.patch);
+        step.bytes = step.patch.getBytes();
+        usedBytes += step.bytes;
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+        usedBytes = 0;
+    }
+
+    /** Memory held by the saved pixels of every step. */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    // Forgets the oldest undo steps, then the furthest redo steps, until within budget
+    private void trim() {
+        while (usedBytes > budgetBytes && !undo.isEmpty()) {
+            usedBytes -= undo.removeFirst().bytes;
+        }
+        while (usedBytes > budgetBytes && !redo.isEmpty()) {
+            usedBytes -= redo.removeFirst().bytes;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Scanline flood fill over the pixel array of a TYPE_INT_ARGB image.
+ * Each step fills a whole horizontal run of matching pixels, then queues
+ * one seed for every run of matching pixels directly above and below it.
+ * Seeds are packed pixel indexes on a growable int stack, so a fill
+ * allocates nothing per pixel. Antialiased strokes leave a fringe of
+ * pixels close to, but not equal to, the color being replaced; a
+ * tolerance lets the fill cover them as well.
+ */
+public class FloodFill {
+
+    private FloodFill() {
+    }
+
+    /**
+     * Fills the area connected to (x, y) whose pixels are within tolerance
+     * of the pixel at (x, y), in every channel including alpha.
+     * @param pixels row-major ARGB pixels, width * height of them
+     * @return the bounds of the changed pixels, or null if nothing changed
+     */
+    public static Rectangle fill(int[] pixels, int width, int height, int x, int y, int replacement, int tolerance) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return null;
+        int target = pixels[y * width + x];
+        if (replacement == target) return null;
+        // When the new color still counts as a match, filled pixels must be
+        // told apart from unfilled ones some other way
+        long[] filled = matches(replacement, target, tolerance)
+                ? new long[(int) (((long) width * height + 63) >>> 6)]
+                : null;
+
+        int minX = x, maxX = x, minY = y, maxY = y;
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = y * width + x;
+
+        while (size > 0) {
+            int seed = stack[--size];
+            int row = seed / width * width;
+            int sy = seed / width;
+            if (!inside(pixels, filled, seed, target, tolerance)) continue;
+
+            int left = seed;
+            while (left > row && inside(pixels, filled, left - 1, target, tolerance)) left--;
+            int right = seed;
+            int rowEnd = row + width - 1;
+            while (right < rowEnd && inside(pixels, filled, right + 1, target, tolerance)) right++;
+
+            Arrays.fill(pixels, left, right + 1, replacement);
+            if (filled != null) {
+                for (int i = left; i <= right; i++) filled[i >>> 6] |= 1L << i;
+            }
+            minX = Math.min(minX, left - row);
+            maxX = Math.max(maxX, right - row);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+
+            // One seed per run of matching pixels in the rows above and below
+            for (int dy = -1; dy <= 1; dy += 2) {
+                int ny = sy + dy;
+                if (ny < 0 || ny >= height) continue;
+                int offset = dy * width;
+                boolean inRun = false;
+                for (int i = left; i <= right; i++) {
+                    boolean match = inside(pixels, filled, i + offset, target, tolerance);
+                    if (match && !inRun) {
+                        if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+                        stack[size++] = i + offset;
+                    }
+                    inRun = match;
+                }
+            }
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    private static boolean inside(int[] pixels, long[] filled, int index, int target, int tolerance) {
+        if (filled != null && (filled[index >>> 6] & (1L << index)) != 0) return false;
+        return matches(pixels[index], target, tolerance);
+    }
+
+    private static boolean matches(int argb, int target, int tolerance) {
+        if (argb == target) return true;
+        if (tolerance == 0) return false;
+        return Math.abs((argb >>> 24) - (target >>> 24)) <= tolerance
+                && Math.abs((argb >> 16 & 0xFF) - (target >> 16 & 0xFF)) <= tolerance
+                && Math.abs((argb >> 8 & 0xFF) - (target >> 8 & 0xFF)) <= tolerance
+                && Math.abs((argb & 0xFF) - (target & 0xFF)) <= tolerance;
+    }
+}
@@ -0,0 +1,358 @@
+import javax.swing.JTextArea;
+import javax.swing.event.DocumentEvent;
+import javax.swing.plaf.basic.BasicTextAreaUI;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.BoxView;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.TabExpander;
+import javax.swing.text.Utilities;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.Arrays;
+
+/**
+ * Line-wrapping view for JTextArea that only measures what is shown.
+ * WrappedPlainView breaks every line of the document into rows when a
+ * note is opened, which for a large note means measuring megabytes of
+ * text before anything appears. Here each line starts with a row count
+ * estimated from its length, and rows are only broken for real when the
+ * line is painted or the caret moves into it. Within a very long line,
+ * rows are broken only as far down as has been shown. When a measured
+ * count differs from the estimate the layout is corrected, so the
+ * scrollbar settles as the note is read.
+ */
+public class LazyWrapView extends BoxView implements TabExpander {
+
+    private final boolean wordWrap;
+    private final Segment segment = new Segment();
+    private FontMetrics metrics;
+    private float averageCharWidth;
+    private int tabSize;
+    private int tabBase;
+
+    public LazyWrapView(Element elem, boolean wordWrap) {
+        super(elem, Y_AXIS);
+        this.wordWrap = wordWrap;
+    }
+
+    /** Text area UI that lays out wrapped text with LazyWrapView. */
+    public static class TextAreaUI extends BasicTextAreaUI {
+        @Override
+        public View create(Element elem) {
+            JTextComponent c = getComponent();
+            // Bidirectional text needs the full paragraph views
+            if (c instanceof JTextArea && ((JTextArea) c).getLineWrap()
+                    && !Boolean.TRUE.equals(elem.getDocument().getProperty("i18n"))) {
+                return new LazyWrapView(elem, ((JTextArea) c).getWrapStyleWord());
+            }
+            return super.create(elem);
+        }
+    }
+
+    @Override
+    protected void loadChildren(ViewFactory f) {
+        Element elem = getElement();
+        View[] lines = new View[elem.getElementCount()];
+        for (int i = 0; i < lines.length; i++) lines[i] = new Line(elem.getElement(i));
+        replace(0, 0, lines);
+    }
+
+    private void updateMetrics() {
+        Component host = getContainer();
+        Font f = host.getFont();
+        if (metrics == null || !metrics.getFont().equals(f)) {
+            metrics = host.getFontMetrics(f);
+            averageCharWidth = Math.max(1, metrics.charWidth('n'));
+            Object size = getDocument().getProperty(PlainDocument.tabSizeAttribute);
+            tabSize = (size instanceof Integer ? (Integer) size : 8) * metrics.charWidth('m');
+        }
+    }
+
+    private int lineHeight() {
+        return metrics.getHeight();
+    }
+
+    // Width rows are broken to; very wide until the view is first sized
+    private int wrapWidth() {
+        int width = getWidth();
+        return width <= 0 || width == Integer.MAX_VALUE ? Integer.MAX_VALUE : width;
+    }
+
+    @Override
+    public float nextTabStop(float x, int tabOffset) {
+        if (tabSize == 0) return x;
+        int tabs = ((int) x - tabBase) / tabSize;
+        return tabBase + ((tabs + 1) * tabSize);
+    }
+
+    @Override
+    public void setSize(float width, float height) {
+        updateMetrics();
+        if ((int) width != getWidth()) {
+            // Every line's rows depend on the width
+            preferenceChanged(null, true, true);
+        }
+        super.setSize(width, height);
+    }
+
+    @Override
+    public float getPreferredSpan(int axis) {
+        updateMetrics();
+        return super.getPreferredSpan(axis);
+    }
+
+    @Override
+    public void paint(Graphics g, Shape a) {
+        updateMetrics();
+        tabBase = ((Rectangle) a).x;
+        g.setFont(getContainer().getFont());
+        super.paint(g, a);
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        updateChildren(e, a);
+        forwardToLine(e, a);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        updateChildren(e, a);
+        forwardToLine(e, a);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e, Shape a, ViewFactory f) {
+        updateChildren(e, a);
+    }
+
+    private void updateChildren(DocumentEvent e, Shape a) {
+        updateMetrics();
+        DocumentEvent.ElementChange ec = e.getChange(getElement());
+        if (ec == null) return;
+        Element[] added = ec.getChildrenAdded();
+        View[] lines = new View[added.length];
+        for (int i = 0; i < added.length; i++) lines[i] = new Line(added[i]);
+        replace(ec.getIndex(), ec.getChildrenRemoved().length, lines);
+        if (a != null) {
+            preferenceChanged(null, true, true);
+            getContainer().repaint();
+        }
+    }
+
+    // Only the line the edit starts in can have changed without being replaced
+    private void forwardToLine(DocumentEvent e, Shape a) {
+        int index = getViewIndex(e.getOffset(), Position.Bias.Forward);
+        if (index < 0) return;
+        Shape alloc = a != null && isAllocationValid() ? getChildAllocation(index, a) : null;
+        ((Line) getView(index)).edited(e.getOffset(), alloc);
+    }
+
+    // Loads doc text into the shared segment, reading no further than needed
+    private Segment load(int p0, int p1) {
+        try {
+            getDocument().getText(p0, p1 - p0, segment);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e); // Offsets come from the line's own element
+        }
+        return segment;
+    }
+
+    /**
+     * One line of the document, wrapped into rows. Row starts are known
+     * up to some point and estimated beyond it; complete means all are
+     * known.
+     */
+    private final class Line extends View {
+        private int[] rowStarts = new int[1]; // relative to the line start; rowStarts[0] == 0
+        private int knownRows = 1;
+        private boolean complete = false;
+        private int brokenWidth = -1;
+        private int reportedRows = -1; // what the layout was last told
+
+        Line(Element elem) {
+            super(elem);
+        }
+
+        @Override
+        public float getPreferredSpan(int axis) {
+            if (axis == X_AXIS) {
+                int width = wrapWidth();
+                return width == Integer.MAX_VALUE ? 100f : width;
+            }
+            reportedRows = rows();
+            return reportedRows * lineHeight();
+        }
+
+        // Characters in the line, not counting its newline
+        private int textLength() {
+            return getEndOffset() - getStartOffset() - 1;
+        }
+
+        private void checkWidth() {
+            if (brokenWidth != wrapWidth()) {
+                brokenWidth = wrapWidth();
+                knownRows = 1;
+                complete = false;
+            }
+        }
+
+        // Known rows plus an estimate for the rest of the line
+        private int rows() {
+            checkWidth();
+            if (complete) return knownRows;
+            int remaining = textLength() - rowStarts[knownRows - 1];
+            int width = brokenWidth;
+            int estimate = width == Integer.MAX_VALUE ? 1
+                    : (int) Math.ceil(remaining * averageCharWidth / width);
+            return knownRows - 1 + Math.max(1, estimate);
+        }
+
+        // Breaks rows until at least count are known or the line is done
+        private void breakRows(int count) {
+            checkWidth();
+            int p0 = getStartOffset();
+            int end = getEndOffset();
+            while (!complete && knownRows < count) {
+                int start = p0 + rowStarts[knownRows - 1];
+                int next = breakPosition(start, end);
+                if (next >= end) {
+                    complete = true;
+                } else {
+                    if (knownRows == rowStarts.length) rowStarts = Arrays.copyOf(rowStarts, knownRows * 2);
+                    rowStarts[knownRows++] = next - p0;
+                }
+            }
+        }
+
+        // End of the row starting at p0, like WrappedPlainView.calculateBreakPosition
+        private int breakPosition(int p0, int p1) {
+            int width = brokenWidth;
+            if (width == Integer.MAX_VALUE) return p1;
+            // No row holds more characters than it is pixels wide
+            int limit = (int) Math.min(p1, (long) p0 + width + 1);
+            Segment s = load(p0, limit);
+            int n = wordWrap
+                    ? Utilities.getBreakLocation(s, metrics, (float) tabBase, (float) (tabBase + width), LazyWrapView.this, p0)
+                    : Utilities.getTabbedTextOffset(s, metrics, (float) tabBase, (float) (tabBase + width), LazyWrapView.this, p0, false);
+            return p0 + Math.max(1, n);
+        }
+
+        // Row containing a line-relative offset, breaking as far as needed
+        private int rowOf(int offset) {
+            while (!complete && rowStarts[knownRows - 1] <= offset) breakRows(knownRows + 1);
+            int i = Arrays.binarySearch(rowStarts, 0, knownRows, offset);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        private int rowEnd(int row) {
+            return row + 1 < knownRows ? rowStarts[row + 1] : textLength();
+        }
+
+        // Rows before the edit keep their breaks; the rest are found again
+        void edited(int offset, Shape alloc) {
+            checkWidth();
+            int before = knownRows;
+            int relative = offset - getStartOffset();
+            int i = Arrays.binarySearch(rowStarts, 0, knownRows, relative);
+            int row = i >= 0 ? i : -i - 2;
+            // With word wrap an edit can pull a word back onto the previous row
+            knownRows = Math.max(1, row);
+            complete = false;
+            breakRows(before);
+            if (rows() != reportedRows) {
+                preferenceChanged(this, false, true);
+                getContainer().repaint();
+            } else if (alloc != null) {
+                Rectangle r = alloc.getBounds();
+                getContainer().repaint(r.x, r.y, r.width, r.height);
+            }
+        }
+
+        @Override
+        public void paint(Graphics g, Shape a) {
+            Rectangle alloc = a.getBounds();
+            Rectangle clip = g.getClipBounds();
+            int height = lineHeight();
+            int firstRow = 0;
+            int lastRow = Integer.MAX_VALUE - 1;
+            if (clip != null) {
+                firstRow = Math.max(0, (clip.y - alloc.y) / height);
+                lastRow = (clip.y + clip.height - alloc.y) / height;
+            }
+            breakRows(lastRow + 2);
+            if (rows() != reportedRows) preferenceChanged(this, false, true);
+
+            JTextComponent host = (JTextComponent) getContainer();
+            Color fg = host.isEnabled() ? host.getForeground() : host.getDisabledTextColor();
+            Color selectedFg = host.getSelectedTextColor();
+            int sel0 = host.getSelectionStart();
+            int sel1 = host.getSelectionEnd();
+            int p0 = getStartOffset();
+            int y = alloc.y + firstRow * height + metrics.getAscent();
+
+            for (int row = firstRow; row <= lastRow && row < knownRows; row++, y += height) {
+                int start = p0 + rowStarts[row];
+                int end = p0 + rowEnd(row);
+                float x = alloc.x;
+                if (selectedFg == null || sel0 == sel1 || sel1 <= start || sel0 >= end) {
+                    drawText((Graphics2D) g, fg, start, end, x, y);
+                } else {
+                    int s0 = Math.max(start, sel0);
+                    int s1 = Math.min(end, sel1);
+                    x = drawText((Graphics2D) g, fg, start, s0, x, y);
+                    x = drawText((Graphics2D) g, selectedFg, s0, s1, x, y);
+                    drawText((Graphics2D) g, fg, s1, end, x, y);
+                }
+            }
+        }
+
+        private float drawText(Graphics2D g, Color color, int p0, int p1, float x, int y) {
+            if (p1 <= p0) return x;
+            g.setColor(color);
+            return Utilities.drawTabbedText(load(p0, p1), x, y, g, LazyWrapView.this, p0);
+        }
+
+        @Override
+        public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+            Rectangle alloc = a.getBounds();
+            int p0 = getStartOffset();
+            if (pos < p0 || pos >= getEndOffset()) throw new BadLocationException("Position not in line", pos);
+            int row = rowOf(pos - p0);
+            int start = p0 + rowStarts[row];
+            alloc.y += row * lineHeight();
+            alloc.height = lineHeight();
+            alloc.x += (int) Utilities.getTabbedTextWidth(load(start, pos), metrics, (float) alloc.x, LazyWrapView.this, start);
+            alloc.width = 1;
+            return alloc;
+        }
+
+        @Override
+        public int viewToModel(float fx, float fy, Shape a, Position.Bias[] bias) {
+            bias[0] = Position.Bias.Forward;
+            Rectangle alloc = a.getBounds();
+            int row = Math.max(0, (int) (fy - alloc.y) / lineHeight());
+            breakRows(row + 2); // so the row's end is known too
+            row = Math.min(row, knownRows - 1);
+            int p0 = getStartOffset();
+            int start = p0 + rowStarts[row];
+            // The last row ends before the newline; others end before the next row
+            int end = row + 1 < knownRows ? p0 + rowStarts[row + 1] : getEndOffset();
+            if (fx < alloc.x) return start;
+            int n = Utilities.getTabbedTextOffset(load(start, end), metrics, (float) alloc.x, fx, LazyWrapView.this, start, false);
+            return Math.min(start + n, end - 1);
+        }
+    }
+}
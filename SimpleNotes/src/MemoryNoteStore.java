@@ -0,0 +1,513 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Note storage for In-Memory mode, used when the SQLite driver is missing.
+ * Notes are kept in an int-keyed hash map for id lookups, plus two ordered
+ * indexes (newest first): one over every note and one per category. Writes
+ * update the indexes in place, so listings and pages never re-sort.
+ * A read/write lock makes it safe to use from the EDT, SwingWorkers and
+ * the async writer at once. Notes handed out are copies.
+ */
+public class MemoryNoteStore {
+
+    private static final String DEFAULT_CATEGORY = "Personal";
+
+    // Index entry, ordered newest first like the SQL queries
+    private static final class Key implements Comparable<Key> {
+        final long lastModified;
+        final int id;
+
+        Key(long lastModified, int id) {
+            this.lastModified = lastModified;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            if (lastModified != other.lastModified) return lastModified > other.lastModified ? -1 : 1;
+            return Integer.compare(other.id, id);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // All guarded by lock
+    private final IntMap<Note> notes = new IntMap<>();
+    private final NavigableSet<Key> byModified = new TreeSet<>();
+    private final Map<String, NavigableSet<Key>> byCategory = new HashMap<>();
+    // Notebook ids by name, in creation order; a notebook outlives its notes
+    private final Map<String, Integer> categoryIds = new LinkedHashMap<>();
+    private final IntMap<List<RevisionLog.Entry>> revisions = new IntMap<>();
+    private final IntMap<byte[]> drawings = new IntMap<>(); // StrokeLog data, never changed in place
+    private final TrigramIndex textIndex = new TrigramIndex();
+    private int nextId = 1;
+    // While a transaction runs, how each note it has written to looked before
+    private IntMap<Saved> undoLog;
+
+    // A note, its revisions and its drawing as they were; null where there were none
+    private static final class Saved {
+        final Note note;
+        final List<RevisionLog.Entry> history;
+        final byte[] drawing;
+
+        Saved(Note note, List<RevisionLog.Entry> history, byte[] drawing) {
+            this.note = note;
+            this.history = history;
+            this.drawing = drawing;
+        }
+    }
+
+    public MemoryNoteStore() {
+        for (String name : new String[] {"Personal", "Work", "Ideas"}) {
+            categoryIds.put(name, categoryIds.size() + 1);
+        }
+    }
+
+    private static String categoryOf(Note note) {
+        return note.getCategory() != null ? note.getCategory() : DEFAULT_CATEGORY;
+    }
+
+    private static Key keyOf(Note note) {
+        return new Key(note.getLastModified().getTime(), note.getId());
+    }
+
+    /** Stores a copy of the note under a new id, and sets that id on the note. */
+    public Note add(Note note) {
+        lock.writeLock().lock();
+        try {
+            note.setId(nextId++);
+            remember(note.getId());
+            Note stored = note.copy();
+            notes.put(stored.getId(), stored);
+            index(stored);
+            textIndex.put(stored.getId(), stored.getTitle(), stored.getContent());
+            return note;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Note get(int id) {
+        lock.readLock().lock();
+        try {
+            Note note = notes.get(id);
+            return note != null ? note.copy() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies change to the stored note and re-indexes it.
+     * The callback runs under the write lock. Returns false if there is no such note.
+     */
+    public boolean update(int id, Consumer<Note> change) {
+        lock.writeLock().lock();
+        try {
+            Note stored = notes.get(id);
+            if (stored == null) return false;
+            remember(id);
+            unindex(stored);
+            try {
+                change.accept(stored);
+            } finally {
+                index(stored);
+                textIndex.put(id, stored.getTitle(), stored.getContent());
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            remember(id);
+            Note stored = notes.remove(id);
+            revisions.remove(id);
+            drawings.remove(id);
+            textIndex.remove(id);
+            if (stored == null) return false;
+            unindex(stored);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Every note, newest first. */
+    public List<Note> all() {
+        lock.readLock().lock();
+        try {
+            List<Note> result = new ArrayList<>(notes.size());
+            for (Key key : byModified) result.add(notes.get(key.id).copy());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit notes of a category that come after the cursor in
+     * newest-first order, the same keyset paging as NoteDAO.getNotesPage.
+     */
+    public List<Note> page(String category, long afterLastModified, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Note> result = new ArrayList<>(Math.min(limit, notes.size()));
+            NavigableSet<Key> index = byCategory.get(category);
+            if (index == null) return result;
+            for (Key key : index.tailSet(new Key(afterLastModified, afterId), false)) {
+                if (result.size() >= limit) break;
+                result.add(notes.get(key.id).copy());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return notes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public byte[] getDrawing(int noteId) {
+        lock.readLock().lock();
+        try {
+            return drawings.get(noteId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Stores a note's drawing; null removes it. Does nothing if the note is gone. */
+    public void saveDrawing(int noteId, byte[] strokes) {
+        lock.writeLock().lock();
+        try {
+            remember(noteId);
+            if (strokes == null) {
+                drawings.remove(noteId);
+            } else if (notes.get(noteId) != null) {
+                drawings.put(noteId, strokes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Every notebook with its note count, in creation order. */
+    public List<Category> categories() {
+        lock.readLock().lock();
+        try {
+            List<Category> result = new ArrayList<>(categoryIds.size());
+            categoryIds.forEach((name, id) -> {
+                NavigableSet<Key> index = byCategory.get(name);
+                result.add(new Category(id, name, index != null ? index.size() : 0));
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Creates a notebook, or returns the existing one with that name. */
+    public Category addCategory(String name) {
+        lock.writeLock().lock();
+        try {
+            int id = categoryIds.computeIfAbsent(name, n -> categoryIds.size() + 1);
+            NavigableSet<Key> index = byCategory.get(name);
+            return new Category(id, name, index != null ? index.size() : 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs work with exclusive access. If it throws, every note, revision
+     * list and drawing it wrote to, and the id counter, are put back as they
+     * were, so the calls it made roll back. Only what it touches is saved,
+     * so a small write stays cheap however many notes there are.
+     */
+    public void transaction(Runnable work) {
+        lock.writeLock().lock();
+        IntMap<Saved> outer = undoLog;
+        try {
+            undoLog = new IntMap<>();
+            int savedNextId = nextId;
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                undoLog.forEach(this::restore);
+                nextId = savedNextId;
+                throw e;
+            }
+            // A nested transaction's writes roll back with the outer one
+            if (outer != null) undoLog.forEach((id, saved) -> {
+                if (outer.get(id) == null) outer.put(id, saved);
+            });
+        } finally {
+            undoLog = outer;
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Saves how a note looks before the running transaction first writes to it
+    private void remember(int id) {
+        if (undoLog == null || undoLog.get(id) != null) return;
+        Note note = notes.get(id);
+        List<RevisionLog.Entry> history = revisions.get(id);
+        undoLog.put(id, new Saved(note != null ? note.copy() : null,
+                history != null ? new ArrayList<>(history) : null, drawings.get(id)));
+    }
+
+    private void restore(int id, Saved saved) {
+        Note current = notes.remove(id);
+        if (current != null) unindex(current);
+        textIndex.remove(id);
+        if (saved.note != null) {
+            notes.put(id, saved.note);
+            index(saved.note);
+            textIndex.put(id, saved.note.getTitle(), saved.note.getContent());
+        }
+        if (saved.history != null) {
+            revisions.put(id, saved.history);
+        } else {
+            revisions.remove(id);
+        }
+        if (saved.drawing != null) {
+            drawings.put(id, saved.drawing);
+        } else {
+            drawings.remove(id);
+        }
+    }
+
+    /**
+     * Notes whose title or content contains query, ignoring case. Title
+     * matches come first, newest first within each group. Only notes that
+     * share every trigram of the query are checked.
+     */
+    public List<SearchHit> search(String query, String category, int limit) {
+        String q = TrigramIndex.normalize(query.trim());
+        List<SearchHit> hits = new ArrayList<>();
+        if (q.isEmpty()) return hits;
+
+        lock.readLock().lock();
+        try {
+            for (int id : textIndex.candidates(q)) {
+                Note n = notes.get(id);
+                String noteCat = categoryOf(n);
+                if (category != null && !noteCat.equals(category)) continue;
+
+                TrigramIndex.Doc doc = textIndex.get(id);
+                boolean inTitle = doc.title.contains(q);
+                int pos = doc.content.indexOf(q);
+                if (!inTitle && pos < 0) continue;
+
+                String content = n.getContent() != null ? n.getContent() : "";
+                // Lower-casing rarely changes the length, so positions carry over
+                int from = Math.min(content.length(), Math.max(0, pos - 20));
+                int to = Math.min(content.length(), Math.max(pos, 0) + q.length() + 40);
+                String snippet = (from > 0 ? "..." : "") + content.substring(from, to) + (to < content.length() ? "..." : "");
+                hits.add(new SearchHit(id, n.getTitle(), snippet, n.getLastModified(), noteCat, inTitle ? -2 : -1));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort((a, b) -> {
+            int byRank = Double.compare(a.getRank(), b.getRank());
+            if (byRank != 0) return byRank;
+            int byDate = b.getLastModified().compareTo(a.getLastModified());
+            return byDate != 0 ? byDate : Integer.compare(b.getNoteId(), a.getNoteId());
+        });
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // --- Revision history ---
+
+    /** Appends a revision for a content change, mirroring DatabaseManager.recordRevision. */
+    public void recordRevision(int noteId, String oldContent, String newContent, long now) {
+        if (oldContent == null) oldContent = "";
+        if (newContent == null) newContent = "";
+        if (oldContent.equals(newContent)) return;
+
+        lock.writeLock().lock();
+        try {
+            remember(noteId);
+            List<RevisionLog.Entry> history = revisions.get(noteId);
+            if (history == null) {
+                history = new ArrayList<>();
+                revisions.put(noteId, history);
+            }
+            int latest = history.isEmpty() ? 0 : history.get(history.size() - 1).revision;
+            int deltas = RevisionLog.SNAPSHOT_INTERVAL;
+            if (history.isEmpty()) {
+                if (!oldContent.isEmpty()) {
+                    history.add(RevisionLog.Entry.snapshot(++latest, oldContent, now));
+                    deltas = 0;
+                }
+            } else {
+                deltas = 0;
+                for (int i = history.size() - 1; i >= 0 && !history.get(i).snapshot; i--) deltas++;
+            }
+            history.add(RevisionLog.next(oldContent, newContent, ++latest, deltas, now));
+
+            if (RevisionLog.shouldPrune(latest)) {
+                revisions.put(noteId, new ArrayList<>(RevisionLog.thin(history, now)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The note's revisions, oldest first. */
+    public List<RevisionLog.Entry> revisions(int noteId) {
+        lock.readLock().lock();
+        try {
+            List<RevisionLog.Entry> history = revisions.get(noteId);
+            return history != null ? new ArrayList<>(history) : Collections.emptyList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Note note) {
+        if (note.getLastModified() == null) note.setLastModified(new Date());
+        Key key = keyOf(note);
+        byModified.add(key);
+        byCategory.computeIfAbsent(categoryOf(note), c -> new TreeSet<>()).add(key);
+        categoryIds.computeIfAbsent(categoryOf(note), c -> categoryIds.size() + 1);
+    }
+
+    private void unindex(Note note) {
+        Key key = keyOf(note);
+        byModified.remove(key);
+        NavigableSet<Key> index = byCategory.get(categoryOf(note));
+        if (index != null) {
+            index.remove(key);
+            if (index.isEmpty()) byCategory.remove(categoryOf(note));
+        }
+    }
+
+    /**
+     * Open-addressing hash map with int keys, so lookups neither box the id
+     * nor chase entry objects. Linear probing; removals shift the following
+     * run back instead of leaving tombstones. Not thread-safe on its own.
+     */
+    static final class IntMap<V> {
+        private static final int FREE = 0; // note ids start at 1
+
+        interface IntEntryConsumer<V> {
+            void accept(int key, V value);
+        }
+
+        private int[] keys = new int[16];
+        private Object[] values = new Object[16];
+        private int size = 0;
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == key) return (V) values[i];
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(int key, V value) {
+            if (key == FREE) throw new IllegalArgumentException("Key " + FREE + " is reserved");
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            for (; keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    V old = (V) values[i];
+                    values[i] = value;
+                    return old;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            // Keep the load factor at or below one half
+            if (++size * 2 > keys.length) grow();
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == FREE) return null;
+                i = (i + 1) & mask;
+            }
+            V old = (V) values[i];
+            size--;
+
+            // Shift back later entries of the probe run that hash at or before the gap
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = FREE;
+            values[gap] = null;
+            return old;
+        }
+
+        void clear() {
+            keys = new int[16];
+            values = new Object[16];
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(IntEntryConsumer<V> action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != FREE) action.accept(keys[i], (V) values[i]);
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldKeys[k] == FREE) continue;
+                int i = hash(oldKeys[k]) & mask;
+                while (keys[i] != FREE) i = (i + 1) & mask;
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+            }
+        }
+    }
+}
@@ -28,6 +28,12 @@ public class Note {
         this.category = category;
     }
 
+    /** Returns an independent copy of this note. */
+    public Note copy() {
+        return new Note(id, title, content, lastModified == null ? null : new Date(lastModified.getTime()),
+                backgroundColor, fontFamily, category);
+    }
+
     public int getId() {
         return id;
     }
@@ -1,10 +1,74 @@
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface NoteDAO {
-    void addNote(Note note);
+    /** Inserts the note and returns it with its generated id, or null on failure. */
+    Note addNote(Note note);
     Note getNote(int id);
     List<Note> getAllNotes();
+    /** Writes the whole note and sets its lastModified to the time of the write. */
     void updateNote(Note note);
+
+    /** Writes only the given fields of the note, plus its modification time (also set on the note). */
+    void updateNoteFields(Note note, Set<NoteField> fields);
+
+    /**
+     * One page of a category, newest first, starting after the given cursor.
+     * Pass Long.MAX_VALUE and Integer.MAX_VALUE for the first page, then the
+     * lastModified time and id of the last note of the previous page.
+     */
+    List<Note> getNotesPage(String category, long afterLastModified, int afterId, int limit);
+
+    /**
+     * Same paging as getNotesPage, but returns only what the note list
+     * shows, so the note bodies are never loaded.
+     */
+    List<NoteSummary> getNoteSummaries(String category, long afterLastModified, int afterId, int limit);
     void deleteNote(int id);
+    /**
+     * Opens the database and migrates its schema to the latest version.
+     * May take a while on an old database; NotesApp runs it off the EDT.
+     */
     void setup() throws Exception;
-}
\ No newline at end of file
+
+    /** Releases database resources. Safe to call more than once. */
+    void close();
+
+    // Bulk operations, each applied atomically in one transaction.
+    // addNotes assigns the generated ids to the given notes.
+    void addNotes(List<Note> notes);
+    void updateNotes(List<Note> notes);
+    void deleteNotes(Collection<Integer> ids);
+
+    /**
+     * Runs the callback in one transaction. Every DAO call it makes commits
+     * together, and nothing is kept if it throws; the exception is rethrown.
+     */
+    void runInTransaction(Consumer<NoteDAO> work);
+
+    /**
+     * Full-text search over titles and content, best matches first.
+     * A null category searches every notebook.
+     */
+    List<SearchHit> search(String query, String category, int limit);
+
+    /** Every notebook with its note count, in the order they were created. */
+    List<Category> getCategories();
+
+    /** Creates a notebook, or returns the existing one with that name; null on failure. */
+    Category addCategory(String name);
+
+    /** The note's drawing as written by StrokeLog.encode, or null if it has none. */
+    byte[] getDrawing(int noteId);
+
+    /** Stores the note's drawing, replacing the previous one; null removes it. Ignored for a deleted note. */
+    void saveDrawing(int noteId, byte[] strokes);
+
+    /** Saved versions of a note's content, newest first. */
+    List<NoteRevision> getRevisions(int noteId);
+
+    /** The full content of one revision, or null if it no longer exists. */
+    String getRevisionContent(int noteId, int revision);
+}
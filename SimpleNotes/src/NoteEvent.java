@@ -0,0 +1,62 @@
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A committed change to one note, published on a NoteEventBus.
+ * Carries the new summary so listeners can patch their rows without
+ * reading the note back.
+ */
+public class NoteEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final int noteId;
+    private final Set<NoteField> changedFields;
+    private final NoteSummary summary;
+
+    public NoteEvent(Type type, int noteId, Set<NoteField> changedFields, NoteSummary summary) {
+        this.type = type;
+        this.noteId = noteId;
+        this.changedFields = Collections.unmodifiableSet(EnumSet.copyOf(changedFields));
+        this.summary = summary;
+    }
+
+    public static NoteEvent created(Note note) {
+        return new NoteEvent(Type.CREATED, note.getId(), EnumSet.allOf(NoteField.class), NoteSummary.of(note));
+    }
+
+    /** fields is null when the whole note was written. */
+    public static NoteEvent updated(Note note, Set<NoteField> fields) {
+        Set<NoteField> changed = fields != null ? fields : EnumSet.allOf(NoteField.class);
+        return new NoteEvent(Type.UPDATED, note.getId(), changed, NoteSummary.of(note));
+    }
+
+    public static NoteEvent deleted(int noteId) {
+        return new NoteEvent(Type.DELETED, noteId, EnumSet.noneOf(NoteField.class), null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    /** Fields written by this change. Every field for CREATED, none for DELETED. */
+    public Set<NoteField> getChangedFields() {
+        return changedFields;
+    }
+
+    /** The note as it is now, or null for DELETED. */
+    public NoteSummary getSummary() {
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + noteId + " " + changedFields;
+    }
+}
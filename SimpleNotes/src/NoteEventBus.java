@@ -0,0 +1,32 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers NoteEvents to subscribers once the change is committed.
+ * Listeners run on the publishing thread (the async writer), so UI
+ * listeners hand the event to the EDT themselves.
+ */
+public class NoteEventBus {
+
+    private final List<Consumer<NoteEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<NoteEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Consumer<NoteEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(NoteEvent event) {
+        for (Consumer<NoteEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                // One broken listener must not stop the others or the writer
+                System.out.println("Note event listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
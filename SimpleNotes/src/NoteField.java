@@ -0,0 +1,42 @@
+/**
+ * The editable columns of a note, so writes can touch only what changed.
+ */
+public enum NoteField {
+    TITLE("title"),
+    CONTENT("content"),
+    CATEGORY("category_id"), // the note holds the name, the row the notebook id
+    BACKGROUND_COLOR("background_color"),
+    FONT_FAMILY("font_family");
+
+    private final String column;
+
+    NoteField(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /** Reads this field's value from a note. */
+    public String get(Note note) {
+        switch (this) {
+            case TITLE: return note.getTitle();
+            case CONTENT: return note.getContent();
+            case CATEGORY: return note.getCategory();
+            case BACKGROUND_COLOR: return note.getBackgroundColor();
+            default: return note.getFontFamily();
+        }
+    }
+
+    /** Copies this field's value from one note to another. */
+    public void copy(Note from, Note to) {
+        switch (this) {
+            case TITLE: to.setTitle(from.getTitle()); break;
+            case CONTENT: to.setContent(from.getContent()); break;
+            case CATEGORY: to.setCategory(from.getCategory()); break;
+            case BACKGROUND_COLOR: to.setBackgroundColor(from.getBackgroundColor()); break;
+            default: to.setFontFamily(from.getFontFamily()); break;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Date;
+
+/**
+ * Metadata of one saved version of a note's content. The text itself is
+ * rebuilt on demand with NoteDAO.getRevisionContent.
+ */
+public class NoteRevision {
+    private final int noteId;
+    private final int revision;
+    private final Date createdAt;
+    private final boolean snapshot;
+    private final int contentLength;
+    private final int storedBytes;
+
+    public NoteRevision(int noteId, int revision, Date createdAt, boolean snapshot, int contentLength, int storedBytes) {
+        this.noteId = noteId;
+        this.revision = revision;
+        this.createdAt = createdAt;
+        this.snapshot = snapshot;
+        this.contentLength = contentLength;
+        this.storedBytes = storedBytes;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    // True if this revision is stored as full text rather than a delta
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public int getStoredBytes() {
+        return storedBytes;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Date;
+
+/**
+ * The fields the note list needs to show a row. The full body is only
+ * loaded through NoteDAO.getNote when the note is opened.
+ */
+public class NoteSummary {
+    private final int id;
+    private final String title;
+    private final String preview;
+    private final Date lastModified;
+    private final String category;
+
+    public NoteSummary(int id, String title, String preview, Date lastModified, String category) {
+        this.id = id;
+        this.title = title;
+        this.preview = preview;
+        this.lastModified = lastModified;
+        this.category = category;
+    }
+
+    /** The summary of a note already in memory, with the same preview the DAO builds. */
+    public static NoteSummary of(Note note) {
+        return new NoteSummary(note.getId(), note.getTitle(), PreviewText.of(note.getContent()), note.getLastModified(), note.getCategory());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -6,15 +6,22 @@ import java.awt.event.FocusEvent;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.text.SimpleDateFormat;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.awt.Point;
-import java.util.ArrayDeque;
-import java.util.Deque;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.JOptionPane;
 import java.io.*;
@@ -32,11 +39,32 @@ import java.awt.event.ActionEvent;
 public class NotesApp extends JFrame {
 
     private NoteDAO noteDAO;
+    private AsyncNoteDAO asyncDAO; // All writes go through here, off the EDT
     private NoteListPanel noteListPanel;
     private EditorPanel editorPanel;
     private SidebarPanel sidebar;
-    private boolean isDarkMode = true;
     private String currentCategory = "Personal";
+    private int autosaveDelayMs = 2000; // Idle time before edits are written
+    private int drawingUndoMb = 32; // Memory the drawing's undo history may hold
+    private boolean databaseReady = false; // Set on the EDT once setup and migrations are done
+
+    private static long launchedAt;
+    private static long lastStartupPhase;
+
+    // Runs CompletableFuture callbacks on the Swing thread
+    private static final java.util.concurrent.Executor EDT = SwingUtilities::invokeLater;
+
+    private static final int SEARCH_LIMIT = 200;
+    private static final int SEARCH_DEBOUNCE_MS = 150; // Pause in typing before a query runs
+    private static final int PAGE_SIZE = 50;
+    private static final int AUTOSAVE_MAX_DELAY_MS = 15000; // Upper bound on unsaved time while typing
+    private static final int LOAD_MORE_THRESHOLD = 300; // px from the bottom of the list
+    private static final int LOAD_CHUNK_CHARS = 256 * 1024; // Note text appended per EDT event while opening
+    // The order getNoteSummaries returns rows in
+    private static final Comparator<NoteSummary> NEWEST_FIRST = Comparator
+            .comparingLong((NoteSummary n) -> n.getLastModified().getTime())
+            .thenComparingInt(NoteSummary::getId)
+            .reversed();
 
     public NotesApp() {
         setTitle("NoteSphere");
@@ -45,15 +73,58 @@ public class NotesApp extends JFrame {
         setLocationRelativeTo(null);
 
         noteDAO = new DatabaseManager();
-        try {
-            noteDAO.setup();
-        } catch (Exception e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Failed to set up database.", "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(1);
-        }
+        asyncDAO = new AsyncNoteDAO(noteDAO); // Nothing is queued on it until the database is open
 
         initUI();
+        logStartup("window built");
+        openDatabase();
+        
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                // Queue the last edits; the async DAO's shutdown hook writes them
+                editorPanel.flushAutosave();
+                noteListPanel.searchPipeline.close();
+            }
+        });
+    }
+
+    /**
+     * Opens the database and migrates its schema in the background, so the
+     * window shows before any of it happens. The note list and the new-note
+     * buttons come alive once it is done.
+     */
+    private void openDatabase() {
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                noteDAO.setup();
+                logStartup("database ready");
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(NotesApp.this, "Failed to set up database.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                }
+                databaseReady = true;
+                noteListPanel.databaseOpened();
+                sidebar.reloadCategories();
+            }
+        }.execute();
+    }
+
+    // Startup timings, from main() and since the previous phase
+    private static synchronized void logStartup(String phase) {
+        long now = System.nanoTime();
+        System.out.println("Startup: " + phase + " at " + (now - launchedAt) / 1_000_000 + " ms (+"
+                + (now - lastStartupPhase) / 1_000_000 + " ms)");
+        lastStartupPhase = now;
     }
 
     private void initUI() {
@@ -69,7 +140,7 @@ public class NotesApp extends JFrame {
         editorPanel = new EditorPanel();
         
         // Wire up selection
-        noteListPanel.setSelectionListener(note -> editorPanel.setNote(note));
+        noteListPanel.setSelectionListener(summary -> editorPanel.setNote(summary));
         
         // Create Split Panes
         // Inner split: List vs Editor
@@ -86,18 +157,32 @@ public class NotesApp extends JFrame {
         
         add(outerSplit, BorderLayout.CENTER);
         
-        // Initial load
-        noteListPanel.refreshNotes();
+        // Committed writes patch the list in place instead of reloading it
+        asyncDAO.getEventBus().subscribe(event -> SwingUtilities.invokeLater(() -> noteListPanel.applyEvent(event)));
+        // Notebook counts only move when a note is created, deleted or moved
+        asyncDAO.getEventBus().subscribe(event -> {
+            if (event.getType() != NoteEvent.Type.UPDATED || event.getChangedFields().contains(NoteField.CATEGORY)) {
+                SwingUtilities.invokeLater(sidebar::reloadCategories);
+            }
+        });
     }
 
     // --- Sidebar Panel ---
     private class SidebarPanel extends JPanel {
         private List<JPanel> categoryItems = new ArrayList<>();
         private List<String> categories = new ArrayList<>();
+        private List<JLabel> countLabels = new ArrayList<>();
+        private List<JLabel> sectionTitles = new ArrayList<>();
 
         private JLabel appTitle;
         private JLabel settings;
+        private JLabel newNotebook;
         private JPanel content;
+        private JPanel notebookList;
+
+        // One count query at a time; changes while it runs ask for another
+        private boolean categoriesLoading;
+        private boolean categoriesStale;
 
         public SidebarPanel() {
             setLayout(new BorderLayout());
@@ -109,16 +194,40 @@ public class NotesApp extends JFrame {
             
             // App Title
             appTitle = new JLabel(" NoteSphere");
-            appTitle.setFont(new Font("Segoe UI", Font.BOLD, 18));
+            appTitle.setFont(Theme.Fonts.APP_TITLE);
             appTitle.setAlignmentX(Component.LEFT_ALIGNMENT);
             content.add(appTitle);
             content.add(Box.createVerticalStrut(30));
             
-            // Notebooks Section
+            // Notebooks Section, filled in once the database is open
             addSectionTitle(content, "Notebooks");
-            addCategoryItem(content, "Personal");
-            addCategoryItem(content, "Work");
-            addCategoryItem(content, "Ideas");
+            notebookList = new JPanel();
+            notebookList.setLayout(new BoxLayout(notebookList, BoxLayout.Y_AXIS));
+            notebookList.setOpaque(false);
+            notebookList.setAlignmentX(Component.LEFT_ALIGNMENT);
+            content.add(notebookList);
+
+            newNotebook = new JLabel(" + New notebook");
+            newNotebook.setFont(Theme.Fonts.MENU);
+            newNotebook.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 0));
+            newNotebook.setAlignmentX(Component.LEFT_ALIGNMENT);
+            newNotebook.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            newNotebook.setVisible(false);
+            newNotebook.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    showNewNotebookDialog();
+                }
+                @Override
+                public void mouseEntered(MouseEvent e) {
+                    newNotebook.setForeground(Theme.current().foreground);
+                }
+                @Override
+                public void mouseExited(MouseEvent e) {
+                    newNotebook.setForeground(Theme.MUTED);
+                }
+            });
+            content.add(newNotebook);
             content.add(Box.createVerticalStrut(20));
             
             // Recents Section
@@ -130,7 +239,7 @@ public class NotesApp extends JFrame {
             
             // Settings at bottom
             settings = new JLabel(" Settings");
-            settings.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            settings.setFont(Theme.Fonts.MENU);
             settings.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
             settings.setCursor(new Cursor(Cursor.HAND_CURSOR));
             settings.addMouseListener(new MouseAdapter() {
@@ -140,43 +249,46 @@ public class NotesApp extends JFrame {
                 }
                 @Override
                 public void mouseEntered(MouseEvent e) {
-                    settings.setForeground(isDarkMode ? Color.WHITE : Color.BLACK);
+                    settings.setForeground(Theme.current().foreground);
                 }
                 @Override
                 public void mouseExited(MouseEvent e) {
-                    settings.setForeground(Color.GRAY);
+                    settings.setForeground(Theme.MUTED);
                 }
             });
             add(settings, BorderLayout.SOUTH);
             
-            updateTheme(isDarkMode);
+            updateTheme(Theme.current());
+            Theme.addListener(this::updateTheme);
         }
         
         private void addSectionTitle(JPanel p, String text) {
             JLabel l = new JLabel(text);
-            l.setFont(new Font("Segoe UI", Font.BOLD, 12));
-            l.setForeground(Color.GRAY);
+            l.setFont(Theme.Fonts.SECTION);
+            l.setForeground(Theme.MUTED);
             l.setAlignmentX(Component.LEFT_ALIGNMENT);
+            sectionTitles.add(l);
             p.add(l);
             p.add(Box.createVerticalStrut(10));
         }
         
-        private void addCategoryItem(JPanel p, String text) {
+        private void addCategoryItem(JPanel p, Category category) {
+            String text = category.getName();
             JPanel item = new JPanel(new BorderLayout());
             item.setMaximumSize(new Dimension(Integer.MAX_VALUE, 35));
-            boolean isSelected = text.equals(currentCategory);
-            item.setOpaque(isSelected);
-            
-            // Initial color set by updateTheme or here if needed, but updateTheme is called at end of constructor
-            // We can set a default based on isDarkMode
-            if (isSelected) item.setBackground(isDarkMode ? new Color(60, 60, 60) : new Color(220, 220, 220));
+            item.setOpaque(text.equals(currentCategory));
             
             JLabel l = new JLabel(" " + text); // Icon placeholder
-            l.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            l.setForeground(isDarkMode ? Color.WHITE : Color.BLACK);
+            l.setFont(Theme.Fonts.MENU);
             l.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+
+            JLabel count = new JLabel(String.valueOf(category.getNoteCount()));
+            count.setFont(Theme.Fonts.MENU);
+            count.setForeground(Theme.MUTED);
+            count.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
             
             item.add(l, BorderLayout.CENTER);
+            item.add(count, BorderLayout.EAST);
             item.setAlignmentX(Component.LEFT_ALIGNMENT);
             
             item.addMouseListener(new MouseAdapter() {
@@ -188,7 +300,7 @@ public class NotesApp extends JFrame {
                 public void mouseEntered(MouseEvent e) {
                     if (!text.equals(currentCategory)) {
                         item.setOpaque(true);
-                        item.setBackground(isDarkMode ? new Color(50, 50, 50) : new Color(230, 230, 230));
+                        item.setBackground(Theme.current().sidebarHover);
                         item.repaint();
                     }
                 }
@@ -203,110 +315,193 @@ public class NotesApp extends JFrame {
 
             categoryItems.add(item);
             categories.add(text);
+            countLabels.add(count);
             p.add(item);
             p.add(Box.createVerticalStrut(5));
         }
 
+        /** Names of the notebooks shown, in sidebar order. */
+        public List<String> getCategoryNames() {
+            return new ArrayList<>(categories);
+        }
+
+        /** Reads the notebooks and their counts again, off the EDT. */
+        public void reloadCategories() {
+            if (!databaseReady) return;
+            if (categoriesLoading) {
+                categoriesStale = true;
+                return;
+            }
+            categoriesLoading = true;
+            categoriesStale = false;
+            new SwingWorker<List<Category>, Void>() {
+                @Override
+                protected List<Category> doInBackground() {
+                    return noteDAO.getCategories();
+                }
+
+                @Override
+                protected void done() {
+                    categoriesLoading = false;
+                    try {
+                        showCategories(get());
+                    } catch (Exception e) {
+                        System.out.println("Error loading notebooks: " + e.getMessage());
+                    }
+                    if (categoriesStale) reloadCategories();
+                }
+            }.execute();
+        }
+
+        // Only the counts change in the common case, so the rows are kept
+        private void showCategories(List<Category> loaded) {
+            List<String> names = new ArrayList<>();
+            for (Category category : loaded) names.add(category.getName());
+            if (names.equals(categories)) {
+                for (int i = 0; i < loaded.size(); i++) {
+                    countLabels.get(i).setText(String.valueOf(loaded.get(i).getNoteCount()));
+                }
+                return;
+            }
+
+            notebookList.removeAll();
+            categoryItems.clear();
+            categories.clear();
+            countLabels.clear();
+            for (Category category : loaded) addCategoryItem(notebookList, category);
+            newNotebook.setVisible(true);
+            updateTheme(Theme.current());
+            notebookList.revalidate();
+            notebookList.repaint();
+        }
+
+        private void showNewNotebookDialog() {
+            String input = JOptionPane.showInputDialog(NotesApp.this, "Notebook name:", "New Notebook", JOptionPane.PLAIN_MESSAGE);
+            if (input == null) return;
+            String name = input.trim();
+            if (name.isEmpty()) return;
+            if (categories.contains(name)) {
+                selectCategory(name);
+                return;
+            }
+
+            new SwingWorker<Category, Void>() {
+                @Override
+                protected Category doInBackground() {
+                    return noteDAO.addCategory(name);
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        if (get() == null) {
+                            JOptionPane.showMessageDialog(NotesApp.this, "Could not create the notebook.", "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                    } catch (Exception e) {
+                        System.out.println("Error adding notebook: " + e.getMessage());
+                        return;
+                    }
+                    selectCategory(name);
+                    reloadCategories();
+                }
+            }.execute();
+        }
+
         private void selectCategory(String category) {
             currentCategory = category;
+            Color selected = Theme.current().selectedBg;
             for (int i = 0; i < categories.size(); i++) {
                 JPanel item = categoryItems.get(i);
-                String cat = categories.get(i);
-                boolean isSelected = cat.equals(category);
+                boolean isSelected = categories.get(i).equals(category);
                 item.setOpaque(isSelected);
-                if (isSelected) item.setBackground(isDarkMode ? new Color(60, 60, 60) : new Color(220, 220, 220));
+                if (isSelected) item.setBackground(selected);
                 item.repaint();
             }
             noteListPanel.setCategory(category);
             noteListPanel.refreshNotes();
         }
         
-        public void updateTheme(boolean dark) {
-            Color bg = dark ? new Color(45, 45, 45) : new Color(240, 240, 240);
-            Color fg = dark ? Color.WHITE : Color.BLACK;
-            Color border = dark ? new Color(30, 30, 30) : new Color(200, 200, 200);
-            
-            setBackground(bg);
-            setBorder(BorderFactory.createMatteBorder(0, 0, 0, 1, border));
-            
-            appTitle.setForeground(fg);
-            settings.setForeground(Color.GRAY);
-            
-            // Update section titles
-            for (Component c : content.getComponents()) {
-                if (c instanceof JLabel && (((JLabel)c).getText().equals("Notebooks") || ((JLabel)c).getText().equals("Recents"))) {
-                     ((JLabel)c).setForeground(Color.GRAY);
-                }
+        public void updateTheme(Theme theme) {
+            setBackground(theme.sidebarBg);
+            setBorder(theme.sidebarBorder);
+            
+            appTitle.setForeground(theme.foreground);
+            settings.setForeground(Theme.MUTED);
+            newNotebook.setForeground(Theme.MUTED);
+            for (JLabel title : sectionTitles) {
+                title.setForeground(Theme.MUTED);
             }
 
             // Update categories
             for (int i = 0; i < categoryItems.size(); i++) {
                 JPanel item = categoryItems.get(i);
-                String cat = categories.get(i);
-                boolean isSelected = cat.equals(currentCategory);
+                boolean isSelected = categories.get(i).equals(currentCategory);
                 
                 JLabel l = (JLabel) item.getComponent(0);
-                l.setForeground(fg);
-                
-                if (isSelected) {
-                    item.setBackground(dark ? new Color(60, 60, 60) : new Color(220, 220, 220));
-                } else {
-                    item.setBackground(bg);
-                }
+                l.setForeground(theme.foreground);
+                item.setBackground(isSelected ? theme.selectedBg : theme.sidebarBg);
             }
-            repaint();
         }
     }
 
     // --- Note List Panel ---
     private class NoteListPanel extends JPanel {
-        private JPanel listContainer;
-        private List<Note> notes;
+        private NoteListModel listModel;
+        private JList<NoteSummary> noteList;
+        private NoteCellRenderer cellRenderer;
+        private List<NoteSummary> notes;
         private JTextField searchField;
-        private java.util.function.Consumer<Note> selectionListener;
+        private java.util.function.Consumer<NoteSummary> selectionListener;
         private String categoryFilter = "Personal";
         private JLabel titleLabel;
+        private JButton addBtn;
+        private JPanel header;
+        private JPanel centerPanel;
+        private JPanel searchWrapper;
+        // Debounces the search field and runs queries off the EDT
+        private final SearchPipeline searchPipeline = new SearchPipeline(SEARCH_DEBOUNCE_MS,
+                (query, category) -> noteDAO.search(query, category, SEARCH_LIMIT),
+                hits -> showSearchResults(hits));
+        // The loaded rows of notes by id, and ids deleted since the last refresh,
+        // so pages fetched before a change do not bring back stale rows
+        private final Map<Integer, NoteSummary> loadedById = new HashMap<>();
+        private final Set<Integer> deletedIds = new HashSet<>();
+        private JScrollPane listScroll;
+        private int loadGeneration = 0;
+        private boolean loadingPage = false;
+        private boolean firstPageShown = false; // For the startup timing log
+        private boolean hasMoreNotes = true;
 
         public NoteListPanel() {
             setLayout(new BorderLayout());
-            setBackground(new Color(30, 30, 30)); // Middle Pane Color
-            setBorder(BorderFactory.createMatteBorder(0, 0, 0, 1, new Color(20, 20, 20)));
 
             // Header
-            JPanel header = new JPanel(new BorderLayout());
-            header.setBackground(new Color(30, 30, 30));
+            header = new JPanel(new BorderLayout());
             header.setBorder(BorderFactory.createEmptyBorder(20, 20, 10, 20));
             
             titleLabel = new JLabel("Personal");
-            titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
-            titleLabel.setForeground(Color.WHITE);
+            titleLabel.setFont(Theme.Fonts.HEADER);
             header.add(titleLabel, BorderLayout.WEST);
             
             // Add Button
-            JButton addBtn = new JButton("+");
-            addBtn.setForeground(Color.WHITE);
+            addBtn = new JButton("+");
             addBtn.setBorderPainted(false);
             addBtn.setContentAreaFilled(false);
-            addBtn.setFont(new Font("Segoe UI", Font.BOLD, 20));
+            addBtn.setFont(Theme.Fonts.ADD_BUTTON);
             addBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
             addBtn.addActionListener(e -> showNewNoteDialog());
+            addBtn.setEnabled(false); // Until the database is open
             header.add(addBtn, BorderLayout.EAST);
             
             add(header, BorderLayout.NORTH);
             
             // Search & List
-            JPanel centerPanel = new JPanel(new BorderLayout());
-            centerPanel.setBackground(new Color(30, 30, 30));
+            centerPanel = new JPanel(new BorderLayout());
             
             // Search Bar
             searchField = new JTextField();
-            searchField.setBackground(new Color(45, 45, 45));
-            searchField.setForeground(Color.WHITE);
-            searchField.setCaretColor(Color.WHITE);
-            searchField.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(new Color(45, 45, 45), 5),
-                BorderFactory.createEmptyBorder(5, 10, 5, 10)
-            ));
+            searchField.setEnabled(false); // Until the database is open
             searchField.putClientProperty("JTextField.placeholderText", "Search");
             searchField.getDocument().addDocumentListener(new DocumentListener() {
                 public void insertUpdate(DocumentEvent e) { filterNotes(); }
@@ -314,27 +509,70 @@ public class NotesApp extends JFrame {
                 public void changedUpdate(DocumentEvent e) { filterNotes(); }
             });
             
-            JPanel searchWrapper = new JPanel(new BorderLayout());
-            searchWrapper.setBackground(new Color(30, 30, 30));
+            searchWrapper = new JPanel(new BorderLayout());
             searchWrapper.setBorder(BorderFactory.createEmptyBorder(0, 20, 10, 20));
             searchWrapper.add(searchField, BorderLayout.CENTER);
             
             centerPanel.add(searchWrapper, BorderLayout.NORTH);
             
-            // List
-            listContainer = new JPanel();
-            listContainer.setLayout(new BoxLayout(listContainer, BoxLayout.Y_AXIS));
-            listContainer.setBackground(new Color(30, 30, 30));
+            // List: one shared renderer paints the visible rows, so cost
+            // depends on the viewport height rather than the note count
+            listModel = new NoteListModel();
+            cellRenderer = new NoteCellRenderer();
+            noteList = new JList<>(listModel);
+            noteList.setCellRenderer(cellRenderer);
+            noteList.setFixedCellHeight(NoteCellRenderer.ROW_HEIGHT);
+            noteList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            noteList.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            noteList.addListSelectionListener(e -> {
+                if (e.getValueIsAdjusting() || listModel.updating) return;
+                NoteSummary selected = noteList.getSelectedValue();
+                if (selected != null && selectionListener != null) selectionListener.accept(selected);
+            });
+            MouseAdapter hoverTracker = new MouseAdapter() {
+                @Override
+                public void mouseMoved(MouseEvent e) {
+                    // Rows have a fixed height, so the index is plain arithmetic
+                    int index = e.getY() / NoteCellRenderer.ROW_HEIGHT;
+                    setHoverIndex(index < listModel.getSize() ? index : -1);
+                }
+                @Override
+                public void mouseExited(MouseEvent e) {
+                    setHoverIndex(-1);
+                }
+            };
+            noteList.addMouseListener(hoverTracker);
+            noteList.addMouseMotionListener(hoverTracker);
             
-            JScrollPane scroll = new JScrollPane(listContainer);
+            JScrollPane scroll = new JScrollPane(noteList);
             scroll.setBorder(null);
-            scroll.getVerticalScrollBar().setUI(new ModernScrollBarUI(isDarkMode));
+            scroll.getVerticalScrollBar().setUnitIncrement(16);
+            scroll.getVerticalScrollBar().addAdjustmentListener(e -> loadMoreIfNeeded());
+            listScroll = scroll;
             
             centerPanel.add(scroll, BorderLayout.CENTER);
             add(centerPanel, BorderLayout.CENTER);
+
+            updateTheme(Theme.current());
+            Theme.addListener(this::updateTheme);
+        }
+
+        // Repaints only the rows that gain or lose the hover highlight
+        private void setHoverIndex(int index) {
+            int previous = cellRenderer.hoverIndex;
+            if (previous == index) return;
+            cellRenderer.hoverIndex = index;
+            repaintRow(previous);
+            repaintRow(index);
+        }
+
+        private void repaintRow(int index) {
+            if (index < 0 || index >= listModel.getSize()) return;
+            int rowHeight = NoteCellRenderer.ROW_HEIGHT;
+            noteList.repaint(0, index * rowHeight, noteList.getWidth(), rowHeight);
         }
         
-        public void setSelectionListener(java.util.function.Consumer<Note> listener) {
+        public void setSelectionListener(java.util.function.Consumer<NoteSummary> listener) {
             this.selectionListener = listener;
         }
         
@@ -343,168 +581,373 @@ public class NotesApp extends JFrame {
             titleLabel.setText(category);
         }
 
+        public void databaseOpened() {
+            addBtn.setEnabled(true);
+            searchField.setEnabled(true);
+            refreshNotes();
+        }
+
         public void refreshNotes() {
-            listContainer.removeAll();
-            new SwingWorker<List<Note>, Void>() {
+            loadGeneration++;
+            notes = new ArrayList<>();
+            loadedById.clear();
+            deletedIds.clear();
+            hasMoreNotes = true;
+            loadingPage = false;
+            if (isSearching()) {
+                filterNotes();
+            } else {
+                listModel.setAll(notes);
+            }
+            loadNextPage();
+        }
+
+        // Fetches the page after the last loaded note using a keyset cursor
+        private void loadNextPage() {
+            if (!databaseReady || loadingPage || !hasMoreNotes) return;
+            loadingPage = true;
+
+            int generation = loadGeneration;
+            String category = categoryFilter;
+            long afterModified = Long.MAX_VALUE;
+            int afterId = Integer.MAX_VALUE;
+            if (!notes.isEmpty()) {
+                NoteSummary last = notes.get(notes.size() - 1);
+                afterModified = last.getLastModified().getTime();
+                afterId = last.getId();
+            }
+            long cursorModified = afterModified;
+            int cursorId = afterId;
+
+            new SwingWorker<List<NoteSummary>, Void>() {
                 @Override
-                protected List<Note> doInBackground() throws Exception {
-                    return noteDAO.getAllNotes();
+                protected List<NoteSummary> doInBackground() throws Exception {
+                    return noteDAO.getNoteSummaries(category, cursorModified, cursorId, PAGE_SIZE);
                 }
 
                 @Override
                 protected void done() {
+                    if (generation != loadGeneration) return; // Category changed or list was refreshed
+                    loadingPage = false;
                     try {
-                        notes = get();
-                        filterNotes();
+                        List<NoteSummary> page = get();
+                        hasMoreNotes = page.size() == PAGE_SIZE;
+                        List<NoteSummary> fresh = new ArrayList<>(page.size());
+                        for (NoteSummary summary : page) {
+                            if (loadedById.containsKey(summary.getId()) || deletedIds.contains(summary.getId())) continue;
+                            loadedById.put(summary.getId(), summary);
+                            fresh.add(summary);
+                        }
+                        notes.addAll(fresh);
+                        if (!isSearching()) appendToList(fresh);
+                        if (!firstPageShown) {
+                            firstPageShown = true;
+                            logStartup("first page shown");
+                        }
+                        // Keep loading until the viewport is filled
+                        SwingUtilities.invokeLater(() -> loadMoreIfNeeded());
                     } catch (Exception e) {
+                        hasMoreNotes = false;
                         e.printStackTrace();
                     }
                 }
             }.execute();
         }
 
+        /**
+         * Patches the list for one committed change: the note's old row is
+         * found by binary search on its sort key and the new row is inserted
+         * at its sorted position, so nothing is reloaded. Call on the EDT.
+         */
+        public void applyEvent(NoteEvent event) {
+            if (notes == null) return;
+            int id = event.getNoteId();
+            if (event.getType() == NoteEvent.Type.DELETED) deletedIds.add(id);
+
+            int oldIndex = -1;
+            NoteSummary old = loadedById.remove(id);
+            if (old != null) {
+                oldIndex = Collections.binarySearch(notes, old, NEWEST_FIRST);
+                if (oldIndex >= 0) notes.remove(oldIndex);
+            }
+
+            NoteSummary updated = event.getSummary();
+            int newIndex = -1;
+            if (updated != null && categoryFilter.equals(updated.getCategory() != null ? updated.getCategory() : "Personal")) {
+                int pos = Collections.binarySearch(notes, updated, NEWEST_FIRST);
+                if (pos < 0) pos = -pos - 1;
+                // Past the last loaded row it belongs to a page that is not loaded yet
+                if (pos < notes.size() || !hasMoreNotes) {
+                    notes.add(pos, updated);
+                    loadedById.put(id, updated);
+                    newIndex = pos;
+                }
+            }
+
+            if (isSearching()) {
+                listModel.replace(id, updated);
+            } else {
+                setHoverIndex(-1);
+                listModel.move(oldIndex, newIndex, updated);
+            }
+        }
+
+        private void loadMoreIfNeeded() {
+            if (isSearching()) return;
+            BoundedRangeModel model = listScroll.getVerticalScrollBar().getModel();
+            if (model.getValue() + model.getExtent() >= model.getMaximum() - LOAD_MORE_THRESHOLD) {
+                loadNextPage();
+            }
+        }
+
+        private boolean isSearching() {
+            return searchField != null && !searchField.getText().trim().isEmpty();
+        }
+
         private void filterNotes() {
-            String query = (searchField != null) ? searchField.getText().toLowerCase() : "";
-            List<Note> filtered = new ArrayList<>();
+            String query = (searchField != null) ? searchField.getText().trim() : "";
+            if (!query.isEmpty()) {
+                searchPipeline.submit(query, categoryFilter);
+                return;
+            }
+            searchPipeline.cancel();
+            // The loaded pages already belong to the current category
             if (notes != null) {
-                for (Note n : notes) {
-                    String noteCat = n.getCategory();
-                    if (noteCat == null) noteCat = "Personal"; // Default
-                    
-                    if (noteCat.equals(categoryFilter)) {
-                        if (n.getTitle().toLowerCase().contains(query) || n.getContent().toLowerCase().contains(query)) {
-                            filtered.add(n);
-                        }
-                    }
-                }
-                updateList(filtered);
+                updateList(notes);
+                SwingUtilities.invokeLater(() -> loadMoreIfNeeded());
             }
         }
 
-        private void updateList(List<Note> notesToShow) {
-            listContainer.removeAll();
-            if (notesToShow != null && !notesToShow.isEmpty()) {
-                for (Note n : notesToShow) {
-                    listContainer.add(createListItem(n));
-                    listContainer.add(Box.createVerticalStrut(5)); // Spacing
-                }
+        private void showSearchResults(List<SearchHit> hits) {
+            List<NoteSummary> results = new ArrayList<>(hits.size());
+            for (SearchHit hit : hits) {
+                results.add(new NoteSummary(hit.getNoteId(), hit.getTitle(), hit.getSnippet(), hit.getLastModified(), hit.getCategory()));
             }
-            listContainer.revalidate();
-            listContainer.repaint();
+            updateList(results, 50);
         }
-        
-        private JPanel createListItem(Note note) {
-            JPanel item = new JPanel(new BorderLayout());
-            item.setBackground(isDarkMode ? new Color(40, 40, 40) : new Color(245, 245, 245));
-            item.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
-            item.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
-            item.setCursor(new Cursor(Cursor.HAND_CURSOR));
-            
-            JLabel title = new JLabel(note.getTitle());
-            title.setFont(new Font("Segoe UI", Font.BOLD, 14));
-            title.setForeground(isDarkMode ? Color.WHITE : Color.BLACK);
-            
-            JLabel preview = new JLabel();
-            String content = note.getContent().replace("\n", " ");
-            if (content.length() > 30) content = content.substring(0, 30) + "...";
-            preview.setText(content);
-            preview.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-            preview.setForeground(Color.GRAY);
-            
-            item.add(title, BorderLayout.NORTH);
-            item.add(preview, BorderLayout.CENTER);
-            
-            item.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if (selectionListener != null) selectionListener.accept(note);
-                }
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    item.setBackground(isDarkMode ? new Color(50, 50, 50) : new Color(235, 235, 235));
-                }
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    item.setBackground(isDarkMode ? new Color(40, 40, 40) : new Color(245, 245, 245));
-                }
-            });
-            
-            return item;
+
+        private void updateList(List<NoteSummary> notesToShow) {
+            updateList(notesToShow, 30);
         }
-        
-        public void updateTheme(boolean dark) {
-            Color bg = dark ? new Color(30, 30, 30) : new Color(255, 255, 255);
-            Color fg = dark ? Color.WHITE : Color.BLACK;
-            Color border = dark ? new Color(20, 20, 20) : new Color(220, 220, 220);
-            Color itemBg = dark ? new Color(40, 40, 40) : new Color(245, 245, 245);
-            
-            setBackground(bg);
-            setBorder(BorderFactory.createMatteBorder(0, 0, 0, 1, border));
-            
-            // Update Header (North)
-            Component header = ((BorderLayout)getLayout()).getLayoutComponent(BorderLayout.NORTH);
-            if (header instanceof JPanel) {
-                header.setBackground(bg);
-                titleLabel.setForeground(fg);
-                Component addBtn = ((BorderLayout)((JPanel)header).getLayout()).getLayoutComponent(BorderLayout.EAST);
-                if (addBtn instanceof JButton) {
-                    addBtn.setForeground(fg);
+
+        private void updateList(List<NoteSummary> notesToShow, int previewLength) {
+            cellRenderer.setPreviewLength(previewLength);
+            setHoverIndex(-1);
+            listModel.setAll(notesToShow);
+        }
+
+        private void appendToList(List<NoteSummary> notesToShow) {
+            appendToList(notesToShow, 30);
+        }
+
+        private void appendToList(List<NoteSummary> notesToShow, int previewLength) {
+            cellRenderer.setPreviewLength(previewLength);
+            if (notesToShow != null) listModel.addAll(notesToShow);
+        }
+
+        private String previewText(String text, int maxLength) {
+            if (text == null) return "";
+            String content = text.replace("\n", " ");
+            if (content.length() > maxLength) content = content.substring(0, maxLength) + "...";
+            return content;
+        }
+
+        /**
+         * Rows shown in the list. Unlike DefaultListModel, whole pages are
+         * added or replaced with a single event instead of one per row.
+         */
+        private class NoteListModel extends AbstractListModel<NoteSummary> {
+            private final List<NoteSummary> rows = new ArrayList<>();
+            // Set while the rows are swapped, so the selection the list drops is not treated as a click
+            private boolean updating = false;
+
+            @Override
+            public int getSize() {
+                return rows.size();
+            }
+
+            @Override
+            public NoteSummary getElementAt(int index) {
+                return rows.get(index);
+            }
+
+            void setAll(List<NoteSummary> newRows) {
+                NoteSummary selected = noteList.getSelectedValue();
+                updating = true;
+                try {
+                    int oldSize = rows.size();
+                    rows.clear();
+                    if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+                    if (newRows != null) rows.addAll(newRows);
+                    if (!rows.isEmpty()) fireIntervalAdded(this, 0, rows.size() - 1);
+                    // Keep the open note highlighted across refreshes
+                    if (selected != null) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            if (rows.get(i).getId() == selected.getId()) {
+                                noteList.setSelectedIndex(i);
+                                break;
+                            }
+                        }
+                    }
+                } finally {
+                    updating = false;
                 }
             }
-            
-            // Update Center Panel
-            Component center = ((BorderLayout)getLayout()).getLayoutComponent(BorderLayout.CENTER);
-            if (center instanceof JPanel) {
-                center.setBackground(bg);
-                
-                Component searchWrapper = ((BorderLayout)((JPanel)center).getLayout()).getLayoutComponent(BorderLayout.NORTH);
-                if (searchWrapper instanceof JPanel) {
-                    searchWrapper.setBackground(bg);
-                    searchField.setBackground(dark ? new Color(45, 45, 45) : new Color(240, 240, 240));
-                    searchField.setForeground(fg);
-                    searchField.setCaretColor(fg);
-                    searchField.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(dark ? new Color(45, 45, 45) : new Color(240, 240, 240), 5),
-                        BorderFactory.createEmptyBorder(5, 10, 5, 10)
-                    ));
+
+            // Moves one row, keeping it selected if it was; either index may be -1
+            void move(int from, int to, NoteSummary row) {
+                if (from == to) {
+                    if (from >= 0) {
+                        rows.set(from, row);
+                        fireContentsChanged(this, from, from);
+                    }
+                    return;
                 }
-                
-                listContainer.setBackground(bg);
-                
-                Component scroll = ((BorderLayout)((JPanel)center).getLayout()).getLayoutComponent(BorderLayout.CENTER);
-                if (scroll instanceof JScrollPane) {
-                    ((JScrollPane)scroll).getVerticalScrollBar().setUI(new ModernScrollBarUI(dark));
+                boolean wasSelected = from >= 0 && noteList.getSelectedIndex() == from;
+                updating = true;
+                try {
+                    if (from >= 0) {
+                        rows.remove(from);
+                        fireIntervalRemoved(this, from, from);
+                    }
+                    if (to >= 0) {
+                        rows.add(to, row);
+                        fireIntervalAdded(this, to, to);
+                        if (wasSelected) noteList.setSelectedIndex(to);
+                    }
+                } finally {
+                    updating = false;
                 }
-                
-                for (Component c : listContainer.getComponents()) {
-                    if (c instanceof JPanel) {
-                        c.setBackground(itemBg);
-                        Component title = ((BorderLayout)((JPanel)c).getLayout()).getLayoutComponent(BorderLayout.NORTH);
-                        if (title instanceof JLabel) title.setForeground(fg);
+            }
+
+            // Updates a search result in place, keeping its snippet; null removes it
+            void replace(int id, NoteSummary row) {
+                for (int i = 0; i < rows.size(); i++) {
+                    NoteSummary current = rows.get(i);
+                    if (current.getId() != id) continue;
+                    if (row == null) {
+                        updating = true;
+                        try {
+                            rows.remove(i);
+                            fireIntervalRemoved(this, i, i);
+                        } finally {
+                            updating = false;
+                        }
+                    } else {
+                        rows.set(i, new NoteSummary(id, row.getTitle(), current.getPreview(), row.getLastModified(), row.getCategory()));
+                        fireContentsChanged(this, i, i);
                     }
+                    return;
                 }
             }
-            repaint();
+
+            void addAll(List<NoteSummary> more) {
+                if (more.isEmpty()) return;
+                int start = rows.size();
+                rows.addAll(more);
+                fireIntervalAdded(this, start, rows.size() - 1);
+            }
+        }
+
+        /**
+         * Paints every row itself with the shared fonts and the current
+         * palette. Nothing is allocated per row: colours come from the
+         * Theme and each row's shortened preview is cached.
+         */
+        private class NoteCellRenderer extends JComponent implements ListCellRenderer<NoteSummary> {
+            static final int ROW_HEIGHT = 65;
+            private static final int ROW_GAP = 5; // stands in for the strut that used to separate items
+            private static final int PAD_X = 15;
+            private static final int PAD_Y = 10;
+
+            int hoverIndex = -1;
+            private int previewLength = 30;
+            // Keyed by row identity; rows that leave the list are dropped by the GC
+            private final Map<NoteSummary, String> previewCache = new WeakHashMap<>();
+            private final Map<?, ?> textHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+            private Theme theme = Theme.current();
+            private String title = "";
+            private String preview = "";
+            private Color background;
+
+            void setPreviewLength(int length) {
+                if (length == previewLength) return;
+                previewLength = length;
+                previewCache.clear();
+            }
+
+            void applyTheme(Theme theme) {
+                this.theme = theme;
+            }
+
+            @Override
+            public Component getListCellRendererComponent(JList<? extends NoteSummary> list, NoteSummary note,
+                                                          int index, boolean isSelected, boolean cellHasFocus) {
+                title = note.getTitle() != null ? note.getTitle() : "";
+                String cached = previewCache.get(note);
+                if (cached == null) {
+                    cached = previewText(note.getPreview(), previewLength);
+                    previewCache.put(note, cached);
+                }
+                preview = cached;
+                background = isSelected || index == hoverIndex ? theme.rowHover : theme.rowBg;
+                return this;
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g;
+                if (textHints != null) g2.addRenderingHints(textHints);
+                int w = getWidth();
+                int h = getHeight();
+                g2.setColor(theme.listBg);
+                g2.fillRect(0, h - ROW_GAP, w, ROW_GAP);
+                g2.setColor(background);
+                g2.fillRect(0, 0, w, h - ROW_GAP);
+
+                g2.setFont(Theme.Fonts.ROW_TITLE);
+                FontMetrics titleMetrics = g2.getFontMetrics();
+                g2.setColor(theme.foreground);
+                g2.drawString(title, PAD_X, PAD_Y + titleMetrics.getAscent());
+
+                g2.setFont(Theme.Fonts.SMALL);
+                g2.setColor(Theme.MUTED);
+                g2.drawString(preview, PAD_X, PAD_Y + titleMetrics.getHeight() + g2.getFontMetrics().getAscent());
+            }
+        }
+        
+        public void updateTheme(Theme theme) {
+            setBackground(theme.listBg);
+            setBorder(theme.listBorder);
+            
+            header.setBackground(theme.listBg);
+            titleLabel.setForeground(theme.foreground);
+            addBtn.setForeground(theme.foreground);
+            
+            centerPanel.setBackground(theme.listBg);
+            searchWrapper.setBackground(theme.listBg);
+            searchField.setBackground(theme.fieldBg);
+            searchField.setForeground(theme.foreground);
+            searchField.setCaretColor(theme.foreground);
+            searchField.setBorder(theme.searchFieldBorder);
+            
+            noteList.setBackground(theme.listBg);
+            cellRenderer.applyTheme(theme);
+            listScroll.getVerticalScrollBar().setUI(new ModernScrollBarUI(theme));
         }
     }
 
     private void showNewNoteDialog() {
+        if (!databaseReady) return;
         // Simplified creation for this UI
         Note newNote = new Note(0, "New Note", "", new Date(), "#121212", "Segoe UI", currentCategory);
-        noteDAO.addNote(newNote);
-        
-        // Get the note with its ID from database
-        try {
-            List<Note> allNotes = noteDAO.getAllNotes();
-            if (!allNotes.isEmpty()) {
-                newNote = allNotes.get(allNotes.size() - 1); // Get the last added note
+        asyncDAO.addNote(newNote).whenCompleteAsync((created, error) -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(this, "Could not create the note.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        
-        noteListPanel.refreshNotes();
-        editorPanel.setNote(newNote);
+            editorPanel.setNote(created);
+        }, EDT);
     }
 
     private void showSettingsDialog() {
@@ -513,10 +956,8 @@ public class NotesApp extends JFrame {
         settingsDialog.setLocationRelativeTo(this);
         settingsDialog.setLayout(new BorderLayout());
         
-        Color bg = isDarkMode ? new Color(45, 45, 45) : new Color(240, 240, 240);
-        Color fg = isDarkMode ? Color.WHITE : Color.BLACK;
-        
-        settingsDialog.getContentPane().setBackground(bg);
+        Theme theme = Theme.current();
+        settingsDialog.getContentPane().setBackground(theme.sidebarBg);
 
         JPanel content = new JPanel();
         content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
@@ -524,33 +965,60 @@ public class NotesApp extends JFrame {
         content.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
         JLabel title = new JLabel("Settings");
-        title.setFont(new Font("Segoe UI", Font.BOLD, 20));
-        title.setForeground(fg);
+        title.setFont(Theme.Fonts.DIALOG_TITLE);
+        title.setForeground(theme.foreground);
         title.setAlignmentX(Component.LEFT_ALIGNMENT);
         content.add(title);
         content.add(Box.createVerticalStrut(20));
 
         JCheckBox darkMode = new JCheckBox("Dark Mode");
-        darkMode.setSelected(isDarkMode);
-        darkMode.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        darkMode.setForeground(fg);
+        darkMode.setSelected(theme.isDark());
+        darkMode.setFont(Theme.Fonts.MENU);
+        darkMode.setForeground(theme.foreground);
         darkMode.setOpaque(false);
         darkMode.setAlignmentX(Component.LEFT_ALIGNMENT);
-        darkMode.addActionListener(e -> {
-            applyTheme(darkMode.isSelected());
-            Color newBg = isDarkMode ? new Color(45, 45, 45) : new Color(240, 240, 240);
-            Color newFg = isDarkMode ? Color.WHITE : Color.BLACK;
-            settingsDialog.getContentPane().setBackground(newBg);
-            title.setForeground(newFg);
-            darkMode.setForeground(newFg);
-        });
+        darkMode.addActionListener(e -> applyTheme(darkMode.isSelected() ? Theme.DARK : Theme.LIGHT));
         content.add(darkMode);
         
         content.add(Box.createVerticalStrut(10));
         
+        JPanel autosaveRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        autosaveRow.setOpaque(false);
+        autosaveRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JLabel autosaveLabel = new JLabel("Autosave after idle (seconds): ");
+        autosaveLabel.setFont(Theme.Fonts.MENU);
+        autosaveLabel.setForeground(theme.foreground);
+        JSpinner autosaveSpinner = new JSpinner(new SpinnerNumberModel(autosaveDelayMs / 1000.0, 0.5, 30.0, 0.5));
+        autosaveSpinner.addChangeListener(e -> {
+            autosaveDelayMs = (int) (((Number) autosaveSpinner.getValue()).doubleValue() * 1000);
+            editorPanel.setAutosaveDelay(autosaveDelayMs);
+        });
+        autosaveRow.add(autosaveLabel);
+        autosaveRow.add(autosaveSpinner);
+        content.add(autosaveRow);
+
+        content.add(Box.createVerticalStrut(10));
+
+        JPanel undoRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        undoRow.setOpaque(false);
+        undoRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JLabel undoLabel = new JLabel("Drawing undo memory (MB): ");
+        undoLabel.setFont(Theme.Fonts.MENU);
+        undoLabel.setForeground(theme.foreground);
+        JSpinner undoSpinner = new JSpinner(new SpinnerNumberModel(drawingUndoMb, 4, 1024, 4));
+        undoSpinner.addChangeListener(e -> {
+            drawingUndoMb = ((Number) undoSpinner.getValue()).intValue();
+            editorPanel.setDrawingUndoBudget(drawingUndoMb);
+        });
+        undoRow.add(undoLabel);
+        undoRow.add(undoSpinner);
+        content.add(undoRow);
+        
+        content.add(Box.createVerticalStrut(10));
+        
         JLabel version = new JLabel("Version 1.0.0");
-        version.setFont(new Font("Segoe UI", Font.ITALIC, 12));
-        version.setForeground(Color.GRAY);
+        version.setFont(Theme.Fonts.SMALL_ITALIC);
+        version.setForeground(Theme.MUTED);
         version.setAlignmentX(Component.LEFT_ALIGNMENT);
         content.add(version);
 
@@ -563,7 +1031,17 @@ public class NotesApp extends JFrame {
         btnPanel.add(closeBtn);
         settingsDialog.add(btnPanel, BorderLayout.SOUTH);
 
-        settingsDialog.setVisible(true);
+        // Follows the theme while open, e.g. when the checkbox above is toggled
+        java.util.function.Consumer<Theme> dialogTheme = t -> {
+            settingsDialog.getContentPane().setBackground(t.sidebarBg);
+            title.setForeground(t.foreground);
+            darkMode.setForeground(t.foreground);
+            autosaveLabel.setForeground(t.foreground);
+            undoLabel.setForeground(t.foreground);
+        };
+        Theme.addListener(dialogTheme);
+        settingsDialog.setVisible(true); // Modal: returns once the dialog is closed
+        Theme.removeListener(dialogTheme);
     }
 
     // --- Editor Panel ---
@@ -571,22 +1049,32 @@ public class NotesApp extends JFrame {
         private JTextField titleField;
         private JTextArea textArea;
         private Note currentNote;
+        private int openGeneration = 0;
         private JLabel dateLabel;
         private JLabel charCountLabel;
+        private JLabel saveStatusLabel;
+        private DocumentStats stats;
+        private DocumentListener contentListener;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy"); // EDT only
+        private AutoSaver autoSaver;
+        private boolean loadingNote = false; // Suppresses autosave while text is set programmatically
         private JPanel emptyStatePanel;
         private JPanel editorContentPanel;
+        private JButton createBtn;
+        private JScrollPane textScroll;
         
         // Drawing components
         private DrawingPanel drawingPanel;
         private JPanel contentContainer;
-        private Tool currentTool = Tool.PEN;
+        private StrokeLog.Tool currentTool = StrokeLog.Tool.PEN;
         private int brushSize = 5;
+        private int fillTolerance = 32; // lets a fill cover the antialiased edge of a stroke
         
-        private enum Tool { PEN, ERASER, FILL }
 
         public EditorPanel() {
             setLayout(new BorderLayout());
-            setBackground(new Color(18, 18, 18)); // Darkest for editor
+            
+            autoSaver = new AutoSaver(autosaveDelayMs, AUTOSAVE_MAX_DELAY_MS, this::saveFields);
             
             // Create empty state panel
             createEmptyStatePanel();
@@ -596,6 +1084,9 @@ public class NotesApp extends JFrame {
             
             // Start with empty state
             add(emptyStatePanel, BorderLayout.CENTER);
+
+            updateTheme(Theme.current());
+            Theme.addListener(this::updateTheme);
         }
         
         private void createEmptyStatePanel() {
@@ -607,18 +1098,17 @@ public class NotesApp extends JFrame {
             centerPanel.setOpaque(false);
             
             JLabel emptyLabel = new JLabel("No note selected");
-            emptyLabel.setFont(new Font("Segoe UI", Font.PLAIN, 18));
-            emptyLabel.setForeground(Color.GRAY);
+            emptyLabel.setFont(Theme.Fonts.EMPTY_STATE);
+            emptyLabel.setForeground(Theme.MUTED);
             emptyLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
             
             JLabel hintLabel = new JLabel("Create a new note to get started");
-            hintLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-            hintLabel.setForeground(Color.GRAY);
+            hintLabel.setFont(Theme.Fonts.MENU);
+            hintLabel.setForeground(Theme.MUTED);
             hintLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
             
-            JButton createBtn = new JButton("+");
-            createBtn.setFont(new Font("Segoe UI", Font.BOLD, 48));
-            createBtn.setForeground(isDarkMode ? Color.WHITE : Color.BLACK);
+            createBtn = new JButton("+");
+            createBtn.setFont(Theme.Fonts.CREATE_BUTTON);
             createBtn.setContentAreaFilled(false);
             createBtn.setBorderPainted(false);
             createBtn.setFocusPainted(false);
@@ -627,10 +1117,10 @@ public class NotesApp extends JFrame {
             createBtn.addActionListener(e -> showCategorySelectionDialog());
             createBtn.addMouseListener(new MouseAdapter() {
                 public void mouseEntered(MouseEvent e) { 
-                    createBtn.setForeground(new Color(100, 150, 255)); 
+                    createBtn.setForeground(Theme.ACCENT); 
                 }
                 public void mouseExited(MouseEvent e) { 
-                    createBtn.setForeground(isDarkMode ? Color.WHITE : Color.BLACK); 
+                    createBtn.setForeground(Theme.current().foreground); 
                 }
             });
             
@@ -649,10 +1139,8 @@ public class NotesApp extends JFrame {
             categoryDialog.setLocationRelativeTo(NotesApp.this);
             categoryDialog.setLayout(new BorderLayout());
             
-            Color bg = isDarkMode ? new Color(45, 45, 45) : new Color(240, 240, 240);
-            Color fg = isDarkMode ? Color.WHITE : Color.BLACK;
-            
-            categoryDialog.getContentPane().setBackground(bg);
+            Theme theme = Theme.current();
+            categoryDialog.getContentPane().setBackground(theme.sidebarBg);
             
             JPanel content = new JPanel();
             content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
@@ -660,20 +1148,19 @@ public class NotesApp extends JFrame {
             content.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
             
             JLabel title = new JLabel("Choose a notebook for your note:");
-            title.setFont(new Font("Segoe UI", Font.BOLD, 14));
-            title.setForeground(fg);
+            title.setFont(Theme.Fonts.ROW_TITLE);
+            title.setForeground(theme.foreground);
             title.setAlignmentX(Component.CENTER_ALIGNMENT);
             content.add(title);
             content.add(Box.createVerticalStrut(20));
             
-            String[] categories = {"Personal", "Work", "Ideas"};
-            for (String cat : categories) {
+            for (String cat : sidebar.getCategoryNames()) {
                 JButton catBtn = new JButton(cat);
                 catBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
                 catBtn.setMaximumSize(new Dimension(200, 40));
-                catBtn.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-                catBtn.setBackground(isDarkMode ? new Color(60, 60, 60) : new Color(220, 220, 220));
-                catBtn.setForeground(fg);
+                catBtn.setFont(Theme.Fonts.MENU);
+                catBtn.setBackground(theme.selectedBg);
+                catBtn.setForeground(theme.foreground);
                 catBtn.setFocusPainted(false);
                 catBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
                 catBtn.addActionListener(e -> {
@@ -684,7 +1171,11 @@ public class NotesApp extends JFrame {
                 content.add(Box.createVerticalStrut(10));
             }
             
-            categoryDialog.add(content, BorderLayout.CENTER);
+            JScrollPane scroll = new JScrollPane(content);
+            scroll.setBorder(null);
+            scroll.setOpaque(false);
+            scroll.getViewport().setOpaque(false);
+            categoryDialog.add(scroll, BorderLayout.CENTER);
             categoryDialog.setVisible(true);
         }
         
@@ -707,15 +1198,21 @@ public class NotesApp extends JFrame {
             infoPanel.setOpaque(false);
             
             dateLabel = new JLabel("Today");
-            dateLabel.setForeground(Color.GRAY);
-            dateLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            dateLabel.setForeground(Theme.MUTED);
+            dateLabel.setFont(Theme.Fonts.SMALL);
             
             charCountLabel = new JLabel("0 characters");
-            charCountLabel.setForeground(Color.GRAY);
-            charCountLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            charCountLabel.setForeground(Theme.MUTED);
+            charCountLabel.setFont(Theme.Fonts.SMALL);
+            
+            saveStatusLabel = new JLabel("Saved");
+            saveStatusLabel.setForeground(Theme.MUTED);
+            saveStatusLabel.setFont(Theme.Fonts.SMALL);
+            autoSaver.setStatusListener(this::showSaveStatus);
             
             infoPanel.add(dateLabel);
             infoPanel.add(charCountLabel);
+            infoPanel.add(saveStatusLabel);
             
             topBar.add(infoPanel, BorderLayout.WEST);
             
@@ -726,8 +1223,11 @@ public class NotesApp extends JFrame {
             JButton drawToggleBtn = new JButton("Draw");
             styleToolbarButton(drawToggleBtn);
             drawToggleBtn.addActionListener(e -> {
-                boolean isDrawing = !drawingPanel.isVisible();
-                drawingPanel.setVisible(isDrawing);
+                DrawingPanel drawing = drawingPanel();
+                boolean isDrawing = !drawing.isVisible();
+                // The drawing is only read and replayed when it is first shown
+                if (isDrawing && currentNote != null) drawing.open(currentNote.getId());
+                drawing.setVisible(isDrawing);
                 drawToggleBtn.setText(isDrawing ? "Text" : "Draw");
                 contentContainer.revalidate();
                 contentContainer.repaint();
@@ -735,28 +1235,32 @@ public class NotesApp extends JFrame {
             
             JButton saveBtn = new JButton("Save");
             styleToolbarButton(saveBtn);
-            saveBtn.addActionListener(e -> {
-                saveNote();
-                noteListPanel.refreshNotes(); // Refresh list to show updates
-            });
+            saveBtn.addActionListener(e -> autoSaver.flushNow());
             
             JButton deleteBtn = new JButton("Delete");
             styleToolbarButton(deleteBtn);
-            deleteBtn.setForeground(new Color(255, 100, 100));
+            deleteBtn.setForeground(Theme.DANGER);
             deleteBtn.addActionListener(e -> {
                 if (currentNote != null) {
                     int choice = JOptionPane.showConfirmDialog(NotesApp.this, "Delete this note?", "Confirm", JOptionPane.YES_NO_OPTION);
                     if (choice == JOptionPane.YES_OPTION) {
-                        noteDAO.deleteNote(currentNote.getId());
+                        autoSaver.reset();
+                        asyncDAO.deleteNote(currentNote.getId());
+                        openGeneration++; // Stops the rest of the note loading
                         currentNote = null;
+                        if (drawingPanel != null) drawingPanel.reset();
                         titleField.setText("");
                         textArea.setText("");
-                        noteListPanel.refreshNotes();
                     }
                 }
             });
 
+            JButton historyBtn = new JButton("History");
+            styleToolbarButton(historyBtn);
+            historyBtn.addActionListener(e -> showHistoryDialog());
+
             tools.add(drawToggleBtn);
+            tools.add(historyBtn);
             tools.add(saveBtn);
             tools.add(deleteBtn);
             topBar.add(tools, BorderLayout.EAST);
@@ -776,18 +1280,26 @@ public class NotesApp extends JFrame {
             titleField = new JTextField();
             titleField.setBorder(null);
             titleField.setOpaque(false);
-            titleField.setForeground(Color.WHITE);
-            titleField.setFont(new Font("Segoe UI", Font.BOLD, 32));
-            titleField.setCaretColor(Color.WHITE);
+            titleField.setFont(Theme.Fonts.NOTE_TITLE);
+            titleField.getDocument().addDocumentListener(new DocumentListener() {
+                public void insertUpdate(DocumentEvent e) { fieldEdited(NoteField.TITLE); }
+                public void removeUpdate(DocumentEvent e) { fieldEdited(NoteField.TITLE); }
+                public void changedUpdate(DocumentEvent e) { }
+            });
             
             textArea = new JTextArea() {
+                @Override
+                public void updateUI() {
+                    setUI(new LazyWrapView.TextAreaUI()); // Wraps only the lines being shown
+                }
+
                 @Override
                 protected void paintComponent(Graphics g) {
                     super.paintComponent(g);
-                    if (getText().isEmpty()) {
+                    if (getDocument().getLength() == 0) { // Not getText(), which copies the whole note
                         Graphics2D g2 = (Graphics2D) g.create();
                         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                        g2.setColor(Color.GRAY);
+                        g2.setColor(Theme.MUTED);
                         g2.setFont(getFont().deriveFont(Font.ITALIC));
                         g2.drawString("Type here...", getInsets().left, g.getFontMetrics().getAscent() + getInsets().top);
                         g2.dispose();
@@ -796,66 +1308,112 @@ public class NotesApp extends JFrame {
             };
             textArea.setBorder(null);
             textArea.setOpaque(false);
-            textArea.setForeground(new Color(220, 220, 220));
-            textArea.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+            textArea.setFont(Theme.Fonts.BODY);
             textArea.setLineWrap(true);
             textArea.setWrapStyleWord(true);
-            textArea.setCaretColor(Color.WHITE);
-            textArea.getDocument().addDocumentListener(new DocumentListener() {
-                public void insertUpdate(DocumentEvent e) { updateStats(); }
-                public void removeUpdate(DocumentEvent e) { updateStats(); }
-                public void changedUpdate(DocumentEvent e) { updateStats(); }
-            });
+            contentListener = new DocumentListener() {
+                public void insertUpdate(DocumentEvent e) { fieldEdited(NoteField.CONTENT); }
+                public void removeUpdate(DocumentEvent e) { fieldEdited(NoteField.CONTENT); }
+                public void changedUpdate(DocumentEvent e) { }
+            };
+            textArea.getDocument().addDocumentListener(contentListener);
+            stats = new DocumentStats(this::updateStats);
+            stats.attach((AbstractDocument) textArea.getDocument());
             
             JScrollPane scroll = new JScrollPane(textArea);
             scroll.setBorder(null);
             scroll.setOpaque(false);
             scroll.getViewport().setOpaque(false);
-            scroll.getVerticalScrollBar().setUI(new ModernScrollBarUI(isDarkMode));
+            textScroll = scroll;
 
             textPanel.add(titleField, BorderLayout.NORTH);
             textPanel.add(scroll, BorderLayout.CENTER);
             
-            // 2. Draw View
-            drawingPanel = new DrawingPanel();
-            drawingPanel.setOpaque(false);
-            drawingPanel.setVisible(false);
-            
-            // In OverlayLayout, the first component added is on top
-            contentContainer.add(drawingPanel);
+            // 2. Draw View, built on first use by drawingPanel()
             contentContainer.add(textPanel);
             
             editorContentPanel.add(contentContainer, BorderLayout.CENTER);
         }
         
+        // The canvas and its toolbars are only built the first time Draw is used
+        private DrawingPanel drawingPanel() {
+            if (drawingPanel == null) {
+                drawingPanel = new DrawingPanel();
+                drawingPanel.setOpaque(false);
+                drawingPanel.setVisible(false);
+                // In OverlayLayout, the first component added is on top
+                contentContainer.add(drawingPanel, 0);
+            }
+            return drawingPanel;
+        }
+
         private void styleToolbarButton(JButton btn) {
             btn.setContentAreaFilled(false);
             btn.setBorderPainted(false);
             btn.setFocusPainted(false);
-            btn.setForeground(Color.GRAY);
-            btn.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            btn.setForeground(Theme.MUTED);
+            btn.setFont(Theme.Fonts.MENU);
             btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
             btn.addMouseListener(new MouseAdapter() {
-                public void mouseEntered(MouseEvent e) { btn.setForeground(isDarkMode ? Color.WHITE : Color.BLACK); }
-                public void mouseExited(MouseEvent e) { btn.setForeground(Color.GRAY); }
+                public void mouseEntered(MouseEvent e) { btn.setForeground(Theme.current().foreground); }
+                public void mouseExited(MouseEvent e) { btn.setForeground(Theme.MUTED); }
             });
         }
 
+        // Runs on every edit with counts DocumentStats already kept current
         private void updateStats() {
-            // Update character count
-            int charCount = textArea.getText().length();
-            charCountLabel.setText(charCount + " character" + (charCount != 1 ? "s" : ""));
-            
-            // Update date
-            if (currentNote != null) {
-                SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy");
-                dateLabel.setText(sdf.format(currentNote.getLastModified()));
+            int chars = stats.getCharacters();
+            int words = stats.getWords();
+            int minutes = stats.getReadingMinutes();
+            charCountLabel.setText(chars + " character" + (chars != 1 ? "s" : "")
+                    + ", " + words + " word" + (words != 1 ? "s" : "")
+                    + ", " + stats.getLines() + " lines, " + stats.getParagraphs() + " paragraphs"
+                    + (minutes > 0 ? ", " + minutes + " min read" : ""));
+        }
+
+        // Only changes when a note is opened or saved, not per keystroke
+        private void updateDate() {
+            if (currentNote != null && currentNote.getLastModified() != null) {
+                dateLabel.setText(dateFormat.format(currentNote.getLastModified()));
             } else {
                 dateLabel.setText("Today");
             }
         }
 
+        /**
+         * Opens a note from the list. Only the summary is in memory, so the
+         * full body is fetched in the background first.
+         */
+        public void setNote(NoteSummary summary) {
+            if (summary == null) {
+                setNote((Note) null);
+                return;
+            }
+            // Queue edits to the note being left before fetching, so reopening
+            // it before this fetch finishes reads them back rather than the old row
+            autoSaver.flushNow();
+            int requested = ++openGeneration;
+            new SwingWorker<Note, Void>() {
+                @Override
+                protected Note doInBackground() throws Exception {
+                    return asyncDAO.getNote(summary.getId()); // Sees saves still queued
+                }
+
+                @Override
+                protected void done() {
+                    if (requested != openGeneration) return; // Another note was opened meanwhile
+                    try {
+                        setNote(get());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }.execute();
+        }
+
         public void setNote(Note note) {
+            openGeneration++;
+            autoSaver.flushNow(); // Persist edits to the note being left
             this.currentNote = note;
             
             if (note != null) {
@@ -863,14 +1421,20 @@ public class NotesApp extends JFrame {
                 remove(emptyStatePanel);
                 add(editorContentPanel, BorderLayout.CENTER);
                 
+                loadingNote = true;
                 titleField.setText(note.getTitle());
-                textArea.setText(note.getContent());
+                loadingNote = false;
+                loadContent(note.getContent());
+                autoSaver.reset();
                 
-                // Update stats
-                updateStats();
+                // Stats follow the text on their own; the date does not
+                updateDate();
                 
-                // Reset drawing for new note (or load if we supported it)
-                drawingPanel.clear();
+                // The new note's drawing is read when the Draw view shows it
+                if (drawingPanel != null) {
+                    drawingPanel.reset();
+                    if (drawingPanel.isVisible()) drawingPanel.open(note.getId());
+                }
                 
                 revalidate();
                 repaint();
@@ -883,53 +1447,262 @@ public class NotesApp extends JFrame {
             }
         }
         
-        private void saveNote() {
-            if (currentNote == null) return;
-            
-            String title = titleField.getText();
-            if (title.trim().isEmpty()) title = "Untitled";
-            
-            currentNote.setTitle(title);
-            currentNote.setContent(textArea.getText());
-            currentNote.setLastModified(new Date());
-            
-            noteDAO.updateNote(currentNote);
+        /**
+         * Shows note text in a fresh piece-table document. The first chunk
+         * appears at once; the rest is cut up on a background thread and
+         * appended one chunk per EDT event, so a huge note can be scrolled
+         * while it arrives. Editing waits until all of it is in, so
+         * autosave never sees part of a note.
+         */
+        private void loadContent(String content) {
+            String text = content != null ? content : "";
+            int first = Math.min(text.length(), LOAD_CHUNK_CHARS);
+            PlainDocument doc = new PlainDocument(new PieceTableContent(text.length()));
+            try {
+                doc.insertString(0, text.substring(0, first), null); // Not attached yet, so nothing listens
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+            setDocument(doc);
+            textArea.setCaretPosition(0);
+            textArea.setEditable(true);
+            if (first == text.length()) return;
+
+            int generation = openGeneration;
+            textArea.setEditable(false);
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws Exception {
+                    for (int from = first; from < text.length() && !isCancelled(); from += LOAD_CHUNK_CHARS) {
+                        String chunk = text.substring(from, Math.min(text.length(), from + LOAD_CHUNK_CHARS));
+                        int loaded = from + chunk.length();
+                        // Waiting for each chunk lets input and painting run in between
+                        SwingUtilities.invokeAndWait(() -> {
+                            if (generation != openGeneration) {
+                                cancel(false); // Another note was opened meanwhile
+                                return;
+                            }
+                            appendChunk(doc, chunk);
+                            saveStatusLabel.setText("Loading " + (int) (100L * loaded / text.length()) + "%");
+                        });
+                    }
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    if (generation != openGeneration) return;
+                    try {
+                        get();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    textArea.setEditable(true);
+                    showSaveStatus(autoSaver.getStatus()); // Replaces the loading progress
+                }
+            }.execute();
         }
 
-        public void updateTheme(boolean dark) {
-            Color bg = dark ? new Color(18, 18, 18) : new Color(255, 255, 255);
-            Color fg = dark ? Color.WHITE : Color.BLACK;
-            Color textFg = dark ? new Color(220, 220, 220) : Color.BLACK;
-            
-            setBackground(bg);
-            titleField.setForeground(fg);
-            titleField.setCaretColor(fg);
-            textArea.setForeground(textFg);
-            textArea.setCaretColor(fg);
-            dateLabel.setForeground(Color.GRAY);
-            charCountLabel.setForeground(Color.GRAY);
-            
-            // Update empty state panel colors
-            for (Component c : emptyStatePanel.getComponents()) {
-                if (c instanceof JPanel) {
-                    for (Component inner : ((JPanel)c).getComponents()) {
-                        if (inner instanceof JLabel) {
-                            ((JLabel)inner).setForeground(Color.GRAY);
+        private void appendChunk(PlainDocument doc, String chunk) {
+            loadingNote = true;
+            try {
+                doc.insertString(doc.getLength(), chunk, null);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                loadingNote = false;
+            }
+        }
+
+        private void setDocument(PlainDocument doc) {
+            textArea.getDocument().removeDocumentListener(contentListener);
+            textArea.setDocument(doc);
+            doc.addDocumentListener(contentListener);
+            stats.attach(doc);
+        }
+
+        private void showHistoryDialog() {
+            if (currentNote == null || !textArea.isEditable()) return; // Not while the note is still loading
+            Note note = currentNote;
+            
+            JDialog historyDialog = new JDialog(NotesApp.this, "History - " + note.getTitle(), true);
+            historyDialog.setSize(700, 450);
+            historyDialog.setLocationRelativeTo(NotesApp.this);
+            historyDialog.setLayout(new BorderLayout());
+            
+            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss");
+            DefaultListModel<NoteRevision> model = new DefaultListModel<>();
+            JList<NoteRevision> revisionList = new JList<>(model);
+            revisionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            revisionList.setCellRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                    NoteRevision r = (NoteRevision) value;
+                    String text = sdf.format(r.getCreatedAt()) + "  (" + r.getContentLength() + " chars)";
+                    return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+                }
+            });
+            
+            JTextArea preview = new JTextArea();
+            preview.setEditable(false);
+            preview.setLineWrap(true);
+            preview.setWrapStyleWord(true);
+            
+            JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(revisionList), new JScrollPane(preview));
+            split.setDividerLocation(250);
+            historyDialog.add(split, BorderLayout.CENTER);
+            
+            JButton restoreBtn = new JButton("Restore");
+            restoreBtn.setEnabled(false);
+            JButton closeBtn = new JButton("Close");
+            closeBtn.addActionListener(e -> historyDialog.dispose());
+            restoreBtn.addActionListener(e -> {
+                if (currentNote == note) {
+                    textArea.setText(preview.getText()); // Autosave records it as a new revision
+                }
+                historyDialog.dispose();
+            });
+            JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            btnPanel.add(restoreBtn);
+            btnPanel.add(closeBtn);
+            historyDialog.add(btnPanel, BorderLayout.SOUTH);
+            
+            revisionList.addListSelectionListener(e -> {
+                if (e.getValueIsAdjusting()) return;
+                NoteRevision selected = revisionList.getSelectedValue();
+                restoreBtn.setEnabled(false);
+                if (selected == null) return;
+                new SwingWorker<String, Void>() {
+                    @Override
+                    protected String doInBackground() throws Exception {
+                        return noteDAO.getRevisionContent(note.getId(), selected.getRevision());
+                    }
+
+                    @Override
+                    protected void done() {
+                        if (revisionList.getSelectedValue() != selected) return;
+                        try {
+                            String content = get();
+                            preview.setText(content != null ? content : "");
+                            preview.setCaretPosition(0);
+                            restoreBtn.setEnabled(content != null);
+                        } catch (Exception ex) {
+                            ex.printStackTrace();
                         }
                     }
+                }.execute();
+            });
+            
+            // Save pending edits first so the newest revision is listed
+            autoSaver.flushNow();
+            asyncDAO.flush().thenRunAsync(() -> new SwingWorker<List<NoteRevision>, Void>() {
+                @Override
+                protected List<NoteRevision> doInBackground() throws Exception {
+                    return noteDAO.getRevisions(note.getId());
                 }
+
+                @Override
+                protected void done() {
+                    try {
+                        for (NoteRevision r : get()) model.addElement(r);
+                        if (model.isEmpty()) preview.setText("No earlier versions yet.");
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            }.execute(), EDT);
+            
+            historyDialog.setVisible(true);
+        }
+
+        private void fieldEdited(NoteField field) {
+            if (!loadingNote && currentNote != null) autoSaver.markDirty(field);
+        }
+
+        // Called by the autosaver with the fields edited since the last save
+        private java.util.concurrent.CompletableFuture<Note> saveFields(java.util.Set<NoteField> dirty) {
+            if (currentNote == null) return java.util.concurrent.CompletableFuture.completedFuture(null);
+            
+            if (dirty.contains(NoteField.TITLE)) {
+                String title = titleField.getText();
+                if (title.trim().isEmpty()) title = "Untitled";
+                currentNote.setTitle(title);
             }
+            if (dirty.contains(NoteField.CONTENT)) {
+                currentNote.setContent(textArea.getText());
+            }
+            currentNote.setLastModified(new Date());
             
-            repaint();
+            // The note list follows along through the DAO's change events
+            return asyncDAO.updateNoteFields(currentNote, dirty);
+        }
+
+        private void showSaveStatus(AutoSaver.Status status) {
+            switch (status) {
+                case SAVING: saveStatusLabel.setText("Saving..."); break;
+                case UNSAVED: saveStatusLabel.setText("Unsaved changes"); break;
+                case FAILED: saveStatusLabel.setText("Save failed"); break;
+                default: saveStatusLabel.setText("Saved"); updateDate(); break;
+            }
+        }
+
+        public void flushAutosave() {
+            autoSaver.flushNow();
+        }
+
+        public void setAutosaveDelay(int ms) {
+            autoSaver.setIdleDelay(ms);
+        }
+
+        public void setDrawingUndoBudget(int mb) {
+            if (drawingPanel != null) drawingPanel.history.setBudget(mb * 1024L * 1024);
+        }
+
+        public void updateTheme(Theme theme) {
+            setBackground(theme.editorBg);
+            titleField.setForeground(theme.foreground);
+            titleField.setCaretColor(theme.foreground);
+            textArea.setForeground(theme.editorText);
+            textArea.setCaretColor(theme.foreground);
+            createBtn.setForeground(theme.foreground);
+            textScroll.getVerticalScrollBar().setUI(new ModernScrollBarUI(theme));
         }
 
         // --- DrawingPanel inner class ---
         private class DrawingPanel extends JPanel {
-            private BufferedImage canvas;
+            private final TiledCanvas canvas = new TiledCanvas();
             private Color currentColor = Color.WHITE; // Default white for dark mode
             private int prevX = -1, prevY = -1;
+            private JPanel canvasPanel;
+
+            // The canvas is larger than the view; this is the canvas point at
+            // the view's top-left corner. Right or middle drag and the wheel pan.
+            private int originX = 0, originY = 0;
+            private int panX = -1, panY = -1;
+
+            // The strokes on the canvas, saved with the note they belong to.
+            // noteId is -1 while nothing is open or the drawing is still being read.
+            private StrokeLog strokes = new StrokeLog();
+            private StrokeLog.Stroke activeStroke;
+            private int noteId = -1;
+            private int loadGeneration = 0;
+            private StrokeLog pendingReplay; // replayed at the next paint, once the canvas has its size
+
+            // Drawing a segment only touches a small box, so repaints cover just
+            // the boxes drawn since the last frame, merged into one request
+            private static final int FRAME_MS = 16;
+            private final Rectangle dirty = new Rectangle();
+            private final Timer repaintTimer = new Timer(FRAME_MS, e -> flushDirty());
+            private final BasicStroke[] brushStrokes = new BasicStroke[64]; // by size, built on first use
+            private TiledCanvas.Brush strokeBrush; // open on the canvas while a stroke is drawn
+
+            // Undo keeps only the pixels each change overwrote, see DrawingHistory
+            private final DrawingHistory history = new DrawingHistory(drawingUndoMb * 1024L * 1024);
+            private Rectangle changeBounds; // canvas box the current stroke has drawn in
+            private int changeKeep; // strokes in the log before the current one
 
             public DrawingPanel() {
+                repaintTimer.setRepeats(false);
                 setLayout(new BorderLayout());
                 setOpaque(false);
                 setBackground(new Color(0, 0, 0, 0));
@@ -950,7 +1723,8 @@ public class NotesApp extends JFrame {
                             file = new File(file.getParentFile(), file.getName() + ".png");
                         }
                         try {
-                            if (canvas != null) ImageIO.write(canvas, "png", file);
+                            BufferedImage image = canvas.toImage();
+                            ImageIO.write(image != null ? image : new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), "png", file);
                             JOptionPane.showMessageDialog(this, "Image saved successfully!");
                         } catch (IOException ex) {
                             ex.printStackTrace();
@@ -968,7 +1742,7 @@ public class NotesApp extends JFrame {
 
                 // --- Bottom Toolbar (Tools) ---
                 JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
-                toolbar.setBackground(new Color(40, 40, 40));
+                toolbar.setBackground(Theme.DARK.toolbarBg);
                 
                 JButton penBtn = new JButton("Pen");
                 JButton eraserBtn = new JButton("Eraser");
@@ -977,13 +1751,19 @@ public class NotesApp extends JFrame {
                 JButton clearBtn = new JButton("Clear");
                 
                 JSlider sizeSlider = new JSlider(1, 50, brushSize);
-                sizeSlider.setBackground(new Color(40, 40, 40));
+                sizeSlider.setBackground(Theme.DARK.toolbarBg);
                 sizeSlider.setPreferredSize(new Dimension(100, 20));
                 sizeSlider.addChangeListener(e -> brushSize = sizeSlider.getValue());
 
-                penBtn.addActionListener(e -> currentTool = Tool.PEN);
-                eraserBtn.addActionListener(e -> currentTool = Tool.ERASER);
-                fillBtn.addActionListener(e -> currentTool = Tool.FILL);
+                JSlider toleranceSlider = new JSlider(0, 128, fillTolerance);
+                toleranceSlider.setBackground(Theme.DARK.toolbarBg);
+                toleranceSlider.setPreferredSize(new Dimension(80, 20));
+                toleranceSlider.setToolTipText("How different a color the fill may cover");
+                toleranceSlider.addChangeListener(e -> fillTolerance = toleranceSlider.getValue());
+
+                penBtn.addActionListener(e -> currentTool = StrokeLog.Tool.PEN);
+                eraserBtn.addActionListener(e -> currentTool = StrokeLog.Tool.ERASER);
+                fillBtn.addActionListener(e -> currentTool = StrokeLog.Tool.FILL);
                 
                 colorBtn.addActionListener(e -> {
                     Color newColor = JColorChooser.showDialog(this, "Choose Color", currentColor);
@@ -992,7 +1772,36 @@ public class NotesApp extends JFrame {
                     }
                 });
                 
-                clearBtn.addActionListener(e -> clear());
+                clearBtn.addActionListener(e -> {
+                    if (noteId < 0 || activeStroke != null || strokes.isEmpty()) return;
+                    canvas.startRecording();
+                    clear();
+                    List<StrokeLog.Stroke> removed = strokes.truncate(0);
+                    history.record(new DrawingHistory.Step(canvas.stopRecording(null), 0, removed, Collections.emptyList()));
+                    saveStrokes();
+                });
+
+                JButton undoBtn = new JButton("Undo");
+                JButton redoBtn = new JButton("Redo");
+                Action undoAction = new AbstractAction() {
+                    public void actionPerformed(ActionEvent e) {
+                        undo();
+                    }
+                };
+                Action redoAction = new AbstractAction() {
+                    public void actionPerformed(ActionEvent e) {
+                        redo();
+                    }
+                };
+                undoBtn.addActionListener(undoAction);
+                redoBtn.addActionListener(redoAction);
+                // Only active while the Draw view is showing
+                InputMap keys = getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+                keys.put(KeyStroke.getKeyStroke("control Z"), "undoDrawing");
+                keys.put(KeyStroke.getKeyStroke("control Y"), "redoDrawing");
+                keys.put(KeyStroke.getKeyStroke("control shift Z"), "redoDrawing");
+                getActionMap().put("undoDrawing", undoAction);
+                getActionMap().put("redoDrawing", redoAction);
                 
                 toolbar.add(new JLabel("Tools:"));
                 toolbar.add(penBtn);
@@ -1001,18 +1810,28 @@ public class NotesApp extends JFrame {
                 toolbar.add(new JSeparator(JSeparator.VERTICAL));
                 toolbar.add(new JLabel("Size:"));
                 toolbar.add(sizeSlider);
+                toolbar.add(new JLabel("Fill tolerance:"));
+                toolbar.add(toleranceSlider);
                 toolbar.add(new JSeparator(JSeparator.VERTICAL));
                 toolbar.add(colorBtn);
                 toolbar.add(clearBtn);
+                toolbar.add(new JSeparator(JSeparator.VERTICAL));
+                toolbar.add(undoBtn);
+                toolbar.add(redoBtn);
                 
                 add(toolbar, BorderLayout.SOUTH);
 
-                JPanel canvasPanel = new JPanel() {
+                canvasPanel = new JPanel() {
                     @Override
                     protected void paintComponent(Graphics g) {
                         super.paintComponent(g);
-                        if (canvas == null) ensureCanvas(getWidth(), getHeight());
-                        g.drawImage(canvas, 0, 0, null);
+                        if (pendingReplay != null) {
+                            replay(pendingReplay);
+                            pendingReplay = null;
+                        }
+                        Rectangle clip = g.getClipBounds();
+                        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+                        canvas.paint((Graphics2D) g, originX, originY, clip);
                     }
                 };
                 canvasPanel.setOpaque(false);
@@ -1023,118 +1842,266 @@ public class NotesApp extends JFrame {
                 canvasPanel.addMouseListener(new MouseAdapter() {
                     @Override
                     public void mousePressed(MouseEvent e) {
-                        ensureCanvas(canvasPanel.getWidth(), canvasPanel.getHeight());
-                        int x = e.getX();
-                        int y = e.getY();
-                        if (currentTool == Tool.FILL) {
-                            floodFill(x, y, currentColor);
-                        } else {
-                            prevX = x; prevY = y;
-                            Graphics2D g = canvas.createGraphics();
-                            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                            if (currentTool == Tool.ERASER) {
-                                g.setComposite(AlphaComposite.Clear);
-                                g.setColor(new Color(0, 0, 0, 0));
+                        if (!SwingUtilities.isLeftMouseButton(e)) {
+                            panX = e.getX();
+                            panY = e.getY();
+                            return;
+                        }
+                        if (noteId < 0) return; // No note, or its drawing is still loading
+                        int x = e.getX() + originX;
+                        int y = e.getY() + originY;
+                        boolean fill = currentTool == StrokeLog.Tool.FILL;
+                        changeKeep = strokes.size();
+                        changeBounds = null;
+                        canvas.startRecording();
+                        if (fill) {
+                            // A fill stops at the edges of the view, so the view is logged with it
+                            Rectangle view = viewBounds();
+                            activeStroke = strokes.fill(currentColor, fillTolerance, x, y, view);
+                            Rectangle filled = canvas.fill(x, y, currentColor.getRGB(), fillTolerance, view);
+                            if (filled != null) {
+                                markDirty(filled);
+                                changeBounds = filled;
+                                finishChange();
                             } else {
-                                g.setColor(currentColor);
+                                // Nothing changed, so there is nothing to log or undo
+                                canvas.stopRecording(null);
+                                strokes.truncate(changeKeep);
+                                activeStroke = null;
                             }
-                            int s = brushSize;
-                            g.fillOval(x - s/2, y - s/2, s, s);
-                            g.dispose();
+                        } else {
+                            activeStroke = strokes.begin(currentTool, currentColor, brushSize, x, y);
+                            prevX = x; prevY = y;
+                            strokeBrush = brush(currentTool, currentColor, brushSize);
+                            strokeBrush.dot(x, y, brushSize);
+                            markDirty(x, y, x, y, brushSize);
                         }
-                        canvasPanel.repaint();
                     }
 
                     @Override
                     public void mouseReleased(MouseEvent e) {
+                        panX = panY = -1;
                         prevX = -1;
                         prevY = -1;
+                        endStroke();
+                        if (activeStroke != null) finishChange();
                     }
                 });
 
                 canvasPanel.addMouseMotionListener(new MouseAdapter() {
                     @Override
                     public void mouseDragged(MouseEvent e) {
-                        ensureCanvas(canvasPanel.getWidth(), canvasPanel.getHeight());
-                        int x = e.getX();
-                        int y = e.getY();
-                        Graphics2D g = canvas.createGraphics();
-                        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                        int s = brushSize;
-                        if (currentTool == Tool.ERASER) {
-                            g.setComposite(AlphaComposite.Clear);
-                            g.setColor(new Color(0, 0, 0, 0));
-                            g.setStroke(new BasicStroke(s, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                            if (prevX != -1) g.drawLine(prevX, prevY, x, y);
-                        } else {
-                            g.setColor(currentColor);
-                            int stroke = Math.max(1, s);
-                            g.setStroke(new BasicStroke(stroke, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                            if (prevX != -1) g.drawLine(prevX, prevY, x, y);
+                        if (panX != -1) {
+                            panBy(panX - e.getX(), panY - e.getY());
+                            panX = e.getX();
+                            panY = e.getY();
+                            return;
+                        }
+                        if (activeStroke == null) return;
+                        int x = e.getX() + originX;
+                        int y = e.getY() + originY;
+                        activeStroke.add(x, y);
+                        if (prevX != -1) {
+                            strokeBrush.segment(prevX, prevY, x, y);
+                            markDirty(prevX, prevY, x, y, activeStroke.getSize());
                         }
                         prevX = x;
                         prevY = y;
-                        g.dispose();
-                        canvasPanel.repaint();
+                    }
+                });
+
+                canvasPanel.addMouseWheelListener(e -> {
+                    int amount = e.getWheelRotation() * 40;
+                    if (e.isShiftDown()) {
+                        panBy(amount, 0);
+                    } else {
+                        panBy(0, amount);
                     }
                 });
             }
 
-            private void ensureCanvas(int w, int h) {
-                if (canvas == null || canvas.getWidth() != w || canvas.getHeight() != h) {
-                    BufferedImage newCanvas = new BufferedImage(Math.max(1, w), Math.max(1, h), BufferedImage.TYPE_INT_ARGB);
-                    Graphics2D g = newCanvas.createGraphics();
-                    g.setBackground(new Color(0, 0, 0, 0));
-                    g.clearRect(0, 0, newCanvas.getWidth(), newCanvas.getHeight());
-                    if (canvas != null) g.drawImage(canvas, 0, 0, null);
-                    g.dispose();
-                    canvas = newCanvas;
+            /** Shows a note's drawing, reading it in the background unless it is already on the canvas. */
+            public void open(int id) {
+                if (noteId == id) return;
+                reset();
+                int generation = loadGeneration;
+                new SwingWorker<byte[], Void>() {
+                    @Override
+                    protected byte[] doInBackground() {
+                        return asyncDAO.getDrawing(id);
+                    }
+
+                    @Override
+                    protected void done() {
+                        if (generation != loadGeneration) return; // Another note was opened meanwhile
+                        try {
+                            byte[] data = get();
+                            strokes = data != null ? StrokeLog.decode(data) : new StrokeLog();
+                        } catch (Exception e) {
+                            System.out.println("Error loading drawing: " + e.getMessage());
+                            strokes = new StrokeLog();
+                        }
+                        noteId = id;
+                        if (!strokes.isEmpty()) {
+                            pendingReplay = strokes;
+                            canvasPanel.repaint();
+                        }
+                    }
+                }.execute();
+            }
+
+            /** Empties the canvas and forgets the note it showed; nothing is saved. */
+            public void reset() {
+                loadGeneration++;
+                noteId = -1;
+                strokes = new StrokeLog();
+                activeStroke = null;
+                endStroke();
+                canvas.stopRecording(null);
+                history.clear();
+                pendingReplay = null;
+                prevX = prevY = -1;
+                originX = originY = 0;
+                clear();
+            }
+
+            // Ends the stroke being drawn, making it one undo step, and saves the log
+            private void finishChange() {
+                TiledCanvas.Patch patch = canvas.stopRecording(changeBounds != null ? changeBounds : new Rectangle());
+                history.record(new DrawingHistory.Step(patch, changeKeep, Collections.emptyList(), Collections.singletonList(activeStroke)));
+                activeStroke = null;
+                changeBounds = null;
+                saveStrokes();
+            }
+
+            private void undo() {
+                if (noteId < 0 || activeStroke != null) return;
+                if (history.undo(canvas, strokes)) {
+                    saveStrokes();
+                    canvasPanel.repaint();
                 }
             }
 
-            public void clear() {
-                if (canvas != null) {
-                    Graphics2D g = canvas.createGraphics();
-                    g.setBackground(new Color(0, 0, 0, 0));
-                    g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-                    g.dispose();
-                    repaint();
+            private void redo() {
+                if (noteId < 0 || activeStroke != null) return;
+                if (history.redo(canvas, strokes)) {
+                    saveStrokes();
+                    canvasPanel.repaint();
                 }
             }
 
-            // Simple iterative flood fill (BFS) on canvas image
-            private void floodFill(int x, int y, Color fillColor) {
-                if (canvas == null) return;
-                int w = canvas.getWidth(), h = canvas.getHeight();
-                if (x < 0 || x >= w || y < 0 || y >= h) return;
-                int target = canvas.getRGB(x, y);
-                int replacement = fillColor.getRGB();
-                if (target == replacement) return;
-                Deque<Point> stack = new ArrayDeque<>();
-                stack.push(new Point(x, y));
-                while (!stack.isEmpty()) {
-                    Point p = stack.pop();
-                    int px = p.x, py = p.y;
-                    if (px < 0 || px >= w || py < 0 || py >= h) continue;
-                    if (canvas.getRGB(px, py) != target) continue;
-                    canvas.setRGB(px, py, replacement);
-                    stack.push(new Point(px+1, py));
-                    stack.push(new Point(px-1, py));
-                    stack.push(new Point(px, py+1));
-                    stack.push(new Point(px, py-1));
+            // Saves are queued on the async writer, which keeps only the newest per note
+            private void saveStrokes() {
+                if (noteId < 0) return;
+                asyncDAO.saveDrawing(noteId, strokes.isEmpty() ? null : strokes.encode());
+            }
+
+            private Rectangle viewBounds() {
+                return new Rectangle(originX, originY, Math.max(1, canvasPanel.getWidth()), Math.max(1, canvasPanel.getHeight()));
+            }
+
+            private void panBy(int dx, int dy) {
+                if (dx == 0 && dy == 0) return;
+                originX += dx;
+                originY += dy;
+                canvasPanel.repaint();
+            }
+
+            // Draws the strokes onto the canvas the same way the mouse drew them
+            private void replay(StrokeLog log) {
+                for (StrokeLog.Stroke stroke : log.getStrokes()) {
+                    int x = stroke.getX(0), y = stroke.getY(0);
+                    if (stroke.getTool() == StrokeLog.Tool.FILL) {
+                        canvas.fill(x, y, stroke.getColor().getRGB(), stroke.getSize(), stroke.getArea());
+                        continue;
+                    }
+                    TiledCanvas.Brush brush = brush(stroke.getTool(), stroke.getColor(), stroke.getSize());
+                    brush.dot(x, y, stroke.getSize());
+                    for (int i = 1; i < stroke.getPointCount(); i++) {
+                        int nx = stroke.getX(i), ny = stroke.getY(i);
+                        brush.segment(x, y, nx, ny);
+                        x = nx;
+                        y = ny;
+                    }
+                    brush.close();
                 }
             }
+
+            private TiledCanvas.Brush brush(StrokeLog.Tool tool, Color color, int size) {
+                return canvas.brush(color, brushStroke(size), tool == StrokeLog.Tool.ERASER);
+            }
+
+            private BasicStroke brushStroke(int size) {
+                int width = Math.max(1, size);
+                if (width >= brushStrokes.length) {
+                    return new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+                }
+                if (brushStrokes[width] == null) {
+                    brushStrokes[width] = new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+                }
+                return brushStrokes[width];
+            }
+
+            private void endStroke() {
+                if (strokeBrush != null) {
+                    strokeBrush.close();
+                    strokeBrush = null;
+                }
+            }
+
+            // Half the brush on each side of the segment, plus the antialiased fringe.
+            // Takes canvas coordinates; the dirty box is kept in view coordinates.
+            private void markDirty(int x1, int y1, int x2, int y2, int size) {
+                int pad = size / 2 + 2;
+                int left = Math.min(x1, x2) - pad, top = Math.min(y1, y2) - pad;
+                int right = Math.max(x1, x2) + pad, bottom = Math.max(y1, y2) + pad;
+                if (activeStroke != null) {
+                    // The undo step saves only the pixels inside this box
+                    if (changeBounds == null) {
+                        changeBounds = new Rectangle(left, top, right - left + 1, bottom - top + 1);
+                    } else {
+                        changeBounds.add(left, top);
+                        changeBounds.add(right + 1, bottom + 1);
+                    }
+                }
+                left -= originX;
+                right -= originX;
+                top -= originY;
+                bottom -= originY;
+                if (dirty.isEmpty()) {
+                    dirty.setBounds(left, top, right - left, bottom - top);
+                } else {
+                    dirty.add(left, top);
+                    dirty.add(right, bottom);
+                }
+                if (!repaintTimer.isRunning()) repaintTimer.start();
+            }
+
+            private void markDirty(Rectangle r) {
+                markDirty(r.x, r.y, r.x + r.width, r.y + r.height, 0);
+            }
+
+            private void flushDirty() {
+                if (dirty.isEmpty()) return;
+                canvasPanel.repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+                dirty.setBounds(0, 0, 0, 0);
+            }
+
+            public void clear() {
+                canvas.clear();
+                repaint();
+            }
         }
     }
 
     // 2. Modern Scroll Bar UI
     private static class ModernScrollBarUI extends BasicScrollBarUI {
-        private Color thumb;
-        private Color track;
+        private final Color thumb;
+        private final Color track;
 
-        public ModernScrollBarUI(boolean dark) {
-            this.thumb = dark ? new Color(80, 80, 80) : new Color(200, 200, 200);
-            this.track = dark ? new Color(30, 30, 30) : new Color(240, 240, 240);
+        public ModernScrollBarUI(Theme theme) {
+            this.thumb = theme.scrollThumb;
+            this.track = theme.scrollTrack;
         }
 
         @Override
@@ -1177,22 +2144,24 @@ public class NotesApp extends JFrame {
         }
     }
 
-    private void applyTheme(boolean dark) {
-        this.isDarkMode = dark;
-        sidebar.updateTheme(dark);
-        noteListPanel.updateTheme(dark);
-        editorPanel.updateTheme(dark);
+    // The panels follow Theme's change notification; this repaints them together
+    private void applyTheme(Theme theme) {
+        Theme.set(theme);
         repaint();
     }
 
     public static void main(String[] args) {
+        launchedAt = lastStartupPhase = System.nanoTime();
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            logStartup("look and feel");
             new NotesApp().setVisible(true);
+            // Queued behind the events setVisible posts, so it runs once the frame is up
+            SwingUtilities.invokeLater(() -> logStartup("first frame"));
         });
     }
 }
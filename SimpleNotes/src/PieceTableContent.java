@@ -0,0 +1,450 @@
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Document storage for large notes, used in place of GapContent. Text is
+ * appended to one buffer that is never modified, and the document is a
+ * list of pieces pointing into it, so an edit anywhere costs the same as
+ * an edit at the end: no characters are moved, only the piece list
+ * changes. Consecutive typing grows the last piece instead of adding new
+ * ones. Positions live in sorted blocks with a shared offset per block,
+ * so an edit shifts whole blocks at once instead of every position in
+ * the note. Like the other Content implementations it is guarded by the
+ * owning document's lock.
+ */
+public class PieceTableContent implements AbstractDocument.Content {
+
+    private char[] buffer;
+    private int bufferLength = 0;
+
+    // Pieces in document order: where each starts in the buffer, its
+    // length, and where it starts in the document
+    private int[] pieceStart = new int[16];
+    private int[] pieceLength = new int[16];
+    private int[] pieceOffset = new int[16];
+    private int pieceCount = 0;
+    private int length = 0;
+
+    private final Marks marks = new Marks();
+
+    public PieceTableContent() {
+        this(1024);
+    }
+
+    /** @param capacity characters to reserve, e.g. the size of a note about to be loaded */
+    public PieceTableContent(int capacity) {
+        buffer = new char[Math.max(16, capacity + 1)];
+        // Every document ends with an implied newline that cannot be removed
+        appendPiece(0, append("\n"), 1);
+        length = 1;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public Position createPosition(int offset) throws BadLocationException {
+        if (offset < 0 || offset > length) throw new BadLocationException("Invalid position", offset);
+        return marks.create(offset);
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        if (where < 0 || where >= length) throw new BadLocationException("Invalid insert", length);
+        insert(where, str);
+        return new InsertUndo(where, str.length());
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        if (where < 0 || nitems < 0 || where + nitems >= length) throw new BadLocationException("Invalid remove", length);
+        String removed = getString(where, nitems);
+        delete(where, nitems);
+        return new RemoveUndo(where, removed);
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        Segment s = new Segment();
+        getChars(where, len, s);
+        return new String(s.array, s.offset, s.count);
+    }
+
+    /**
+     * Text that lies inside one piece is returned without copying. With
+     * partial return enabled only the part up to the end of the first
+     * piece is returned, so callers walking a large range never copy.
+     */
+    @Override
+    public void getChars(int where, int len, Segment txt) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length) throw new BadLocationException("Invalid range", where + len);
+        if (len == 0) {
+            txt.array = buffer;
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+        int i = findPiece(where);
+        int into = where - pieceOffset[i];
+        int available = pieceLength[i] - into;
+        if (len <= available || txt.isPartialReturn()) {
+            txt.array = buffer;
+            txt.offset = pieceStart[i] + into;
+            txt.count = Math.min(len, available);
+            return;
+        }
+
+        char[] copy = new char[len];
+        int copied = 0;
+        while (copied < len) {
+            int n = Math.min(len - copied, pieceLength[i] - into);
+            System.arraycopy(buffer, pieceStart[i] + into, copy, copied, n);
+            copied += n;
+            into = 0;
+            i++;
+        }
+        txt.array = copy;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+    private void insert(int where, String str) {
+        int n = str.length();
+        if (n == 0) return;
+        int start = append(str);
+
+        // Typing extends the piece that ends here if it was also the last text appended
+        int before = where == 0 ? -1 : findPiece(where - 1);
+        if (before >= 0 && pieceOffset[before] + pieceLength[before] == where
+                && pieceStart[before] + pieceLength[before] == start) {
+            pieceLength[before] += n;
+            shiftOffsets(before + 1, n);
+        } else {
+            int at = split(where);
+            openSlots(at, 1);
+            pieceStart[at] = start;
+            pieceLength[at] = n;
+            pieceOffset[at] = where;
+            shiftOffsets(at + 1, n);
+        }
+        length += n;
+        marks.inserted(where, n);
+    }
+
+    private void delete(int where, int n) {
+        if (n == 0) return;
+        int first = split(where);
+        int last = split(where + n);
+        System.arraycopy(pieceStart, last, pieceStart, first, pieceCount - last);
+        System.arraycopy(pieceLength, last, pieceLength, first, pieceCount - last);
+        System.arraycopy(pieceOffset, last, pieceOffset, first, pieceCount - last);
+        pieceCount -= last - first;
+        shiftOffsets(first, -n);
+        length -= n;
+        marks.removed(where, n);
+    }
+
+    // Appends to the buffer, returning where the text starts in it
+    private int append(String str) {
+        int n = str.length();
+        if (bufferLength + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(bufferLength + n, buffer.length * 2));
+        }
+        str.getChars(0, n, buffer, bufferLength);
+        bufferLength += n;
+        return bufferLength - n;
+    }
+
+    private void appendPiece(int offset, int start, int n) {
+        openSlots(pieceCount, 1);
+        pieceStart[pieceCount - 1] = start;
+        pieceLength[pieceCount - 1] = n;
+        pieceOffset[pieceCount - 1] = offset;
+    }
+
+    // The piece containing a document offset below length
+    private int findPiece(int offset) {
+        int lo = 0, hi = pieceCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (pieceOffset[mid] <= offset) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    // Makes a piece start at offset and returns its index
+    private int split(int offset) {
+        if (offset == length) return pieceCount;
+        int i = findPiece(offset);
+        int into = offset - pieceOffset[i];
+        if (into == 0) return i;
+        openSlots(i + 1, 1);
+        pieceStart[i + 1] = pieceStart[i] + into;
+        pieceLength[i + 1] = pieceLength[i] - into;
+        pieceOffset[i + 1] = offset;
+        pieceLength[i] = into;
+        return i + 1;
+    }
+
+    private void openSlots(int at, int n) {
+        if (pieceCount + n > pieceStart.length) {
+            int capacity = Math.max(pieceCount + n, pieceStart.length * 2);
+            pieceStart = Arrays.copyOf(pieceStart, capacity);
+            pieceLength = Arrays.copyOf(pieceLength, capacity);
+            pieceOffset = Arrays.copyOf(pieceOffset, capacity);
+        }
+        System.arraycopy(pieceStart, at, pieceStart, at + n, pieceCount - at);
+        System.arraycopy(pieceLength, at, pieceLength, at + n, pieceCount - at);
+        System.arraycopy(pieceOffset, at, pieceOffset, at + n, pieceCount - at);
+        pieceCount += n;
+    }
+
+    private void shiftOffsets(int from, int delta) {
+        for (int i = from; i < pieceCount; i++) pieceOffset[i] += delta;
+    }
+
+    private final class InsertUndo extends AbstractUndoableEdit {
+        private final int where;
+        private final int length;
+        private String text;
+
+        InsertUndo(int where, int length) {
+            this.where = where;
+            this.length = length;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                text = getString(where, length);
+                delete(where, length);
+            } catch (BadLocationException e) {
+                throw new CannotUndoException();
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            insert(where, text);
+            text = null;
+        }
+    }
+
+    private final class RemoveUndo extends AbstractUndoableEdit {
+        private final int where;
+        private final String text;
+
+        RemoveUndo(int where, String text) {
+            this.where = where;
+            this.text = text;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            insert(where, text);
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            delete(where, text.length());
+        }
+    }
+
+    /**
+     * Live positions, sorted by offset and split into blocks. A mark's
+     * offset is its stored value plus its block's delta, so an edit only
+     * touches the marks in the block where it happens and adjusts the
+     * delta of the blocks after it. Marks are dropped once nothing holds
+     * their Position any more.
+     */
+    private static final class Marks {
+        private static final int BLOCK_SIZE = 512;
+
+        private final List<Block> blocks = new ArrayList<>();
+        private final ReferenceQueue<Position> released = new ReferenceQueue<>();
+        private int live = 0;
+        private int dead = 0;
+
+        Position create(int offset) {
+            while (released.poll() != null) dead++;
+            if (dead > 1024 && dead > live / 2) purge();
+
+            if (blocks.isEmpty()) blocks.add(new Block());
+            // The last block starting at or before offset, or the first one
+            int b = 0;
+            for (int lo = 0, hi = blocks.size() - 1; lo <= hi; ) {
+                int mid = (lo + hi) >>> 1;
+                Block block = blocks.get(mid);
+                if (block.size == 0 || block.offsetAt(0) <= offset) {
+                    b = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            Block block = blocks.get(b);
+            int at = block.upperBound(offset);
+
+            Sticky position = new Sticky();
+            Mark mark = new Mark(position, released, offset - block.delta, block);
+            position.mark = mark;
+            block.insert(at, mark);
+            live++;
+            if (block.size == BLOCK_SIZE) splitBlock(b, at == BLOCK_SIZE - 1 && b == blocks.size() - 1);
+            return position;
+        }
+
+        // Marks at or after where move with the text, except those at 0
+        void inserted(int where, int n) {
+            int from = firstBlockReaching(Math.max(where, 1));
+            if (from < 0) return;
+            Block block = blocks.get(from);
+            for (int i = block.lowerBound(Math.max(where, 1)); i < block.size; i++) block.marks[i].stored += n;
+            for (int b = from + 1; b < blocks.size(); b++) blocks.get(b).delta += n;
+        }
+
+        // Marks inside the removed range collapse onto where
+        void removed(int where, int n) {
+            int end = where + n;
+            int from = firstBlockReaching(where);
+            if (from < 0) return;
+            int b = from;
+            for (; b < blocks.size(); b++) {
+                Block block = blocks.get(b);
+                if (block.size > 0 && block.offsetAt(0) >= end) break;
+                for (int i = block.lowerBound(where); i < block.size; i++) {
+                    Mark m = block.marks[i];
+                    int offset = m.stored + block.delta;
+                    m.stored = (offset >= end ? offset - n : where) - block.delta;
+                }
+            }
+            for (; b < blocks.size(); b++) blocks.get(b).delta -= n;
+        }
+
+        // First block whose last mark is at or after offset, or -1
+        private int firstBlockReaching(int offset) {
+            int lo = 0, hi = blocks.size() - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                Block block = blocks.get(mid);
+                if (block.size > 0 && block.offsetAt(block.size - 1) >= offset) {
+                    found = mid;
+                    hi = mid - 1;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return found;
+        }
+
+        // Marks are mostly created in order while a note loads, so a block
+        // filled at the end is left full rather than halved
+        private void splitBlock(int b, boolean atEnd) {
+            Block block = blocks.get(b);
+            Block next = new Block();
+            next.delta = block.delta;
+            int half = atEnd ? block.size - 1 : block.size / 2;
+            System.arraycopy(block.marks, half, next.marks, 0, block.size - half);
+            next.size = block.size - half;
+            Arrays.fill(block.marks, half, block.size, null);
+            block.size = half;
+            for (int i = 0; i < next.size; i++) next.marks[i].block = next;
+            blocks.add(b + 1, next);
+        }
+
+        private void purge() {
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                Block block = blocks.get(b);
+                int kept = 0;
+                for (int i = 0; i < block.size; i++) {
+                    if (block.marks[i].get() != null) block.marks[kept++] = block.marks[i];
+                }
+                Arrays.fill(block.marks, kept, block.size, null);
+                block.size = kept;
+                if (kept == 0) blocks.remove(b);
+            }
+            live = 0;
+            for (Block block : blocks) live += block.size;
+            dead = 0;
+            while (released.poll() != null) { } // all of them were just dropped
+        }
+    }
+
+    private static final class Block {
+        final Mark[] marks = new Mark[Marks.BLOCK_SIZE];
+        int size;
+        int delta;
+
+        int offsetAt(int i) {
+            return marks[i].stored + delta;
+        }
+
+        // First index whose offset is >= offset
+        int lowerBound(int offset) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (offsetAt(mid) < offset) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        // First index whose offset is > offset
+        int upperBound(int offset) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (offsetAt(mid) <= offset) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        void insert(int at, Mark mark) {
+            System.arraycopy(marks, at, marks, at + 1, size - at);
+            marks[at] = mark;
+            size++;
+        }
+    }
+
+    private static final class Mark extends WeakReference<Position> {
+        int stored;
+        Block block;
+
+        Mark(Position position, ReferenceQueue<Position> queue, int stored, Block block) {
+            super(position, queue);
+            this.stored = stored;
+            this.block = block;
+        }
+    }
+
+    private static final class Sticky implements Position {
+        Mark mark;
+
+        @Override
+        public int getOffset() {
+            return mark.stored + mark.block.delta;
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Builds the short plain-text preview stored with each note and shown in
+ * the note list. Runs of whitespace become one space and common markup
+ * (Markdown line markers and emphasis, HTML tags) is dropped. Scanning
+ * stops as soon as the preview is full, so long bodies cost no more than
+ * short ones.
+ */
+public final class PreviewText {
+
+    /** Characters kept in a preview. */
+    public static final int MAX_LENGTH = 100;
+
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private PreviewText() {
+    }
+
+    public static String of(String content) {
+        if (content == null || content.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(Math.min(MAX_LENGTH, content.length()));
+        int len = content.length();
+        int i = 0;
+        boolean lineStart = true;
+        boolean pendingSpace = false;
+
+        while (i < len && sb.length() < MAX_LENGTH) {
+            char c = content.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                if (c == '\n') lineStart = true;
+                pendingSpace = sb.length() > 0;
+                i++;
+                continue;
+            }
+
+            if (lineStart) {
+                lineStart = false;
+                int marker = lineMarkerEnd(content, i);
+                if (marker > i) {
+                    i = marker;
+                    continue;
+                }
+            }
+
+            if (c == '<') {
+                int close = tagEnd(content, i);
+                if (close > i) {
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            if (c == '*' || c == '_' || c == '`' || c == '~') {
+                i++;
+                continue;
+            }
+
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+                if (sb.length() == MAX_LENGTH) break;
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    // Index of the '>' closing a tag that opens at from, or -1. Only what
+    // looks like a short tag counts, not a lone comparison, and the search
+    // stops after MAX_TAG_LENGTH characters so a stray '<' costs little
+    private static int tagEnd(String s, int from) {
+        if (from + 1 >= s.length()) return -1;
+        char next = s.charAt(from + 1);
+        if (!Character.isLetter(next) && next != '/') return -1;
+        int end = Math.min(s.length(), from + MAX_TAG_LENGTH);
+        for (int i = from + 2; i < end; i++) {
+            if (s.charAt(i) == '>') return i;
+        }
+        return -1;
+    }
+
+    // End of a Markdown marker at the start of a line (headings, quotes,
+    // bullets, numbered items, task boxes), or from if there is none
+    private static int lineMarkerEnd(String s, int from) {
+        int i = from;
+        int len = s.length();
+        char c = s.charAt(i);
+        if (c == '#' || c == '>') {
+            while (i < len && (s.charAt(i) == '#' || s.charAt(i) == '>')) i++;
+        } else if ((c == '-' || c == '*' || c == '+') && i + 1 < len && s.charAt(i + 1) == ' ') {
+            i++;
+        } else if (Character.isDigit(c)) {
+            while (i < len && Character.isDigit(s.charAt(i))) i++;
+            if (i + 1 >= len || s.charAt(i) != '.' || s.charAt(i + 1) != ' ') return from;
+            i++;
+        } else {
+            return from;
+        }
+        while (i < len && s.charAt(i) == ' ') i++;
+        if (s.startsWith("[ ] ", i) || s.startsWith("[x] ", i) || s.startsWith("[X] ", i)) i += 4;
+        return i;
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encoding and retention rules for note revision history.
+ * Every SNAPSHOT_INTERVAL-th stored revision holds the full (deflated) text;
+ * the ones in between hold a TextDelta from the revision before them. Any
+ * revision is rebuilt from the nearest snapshot at or before it with fewer
+ * than SNAPSHOT_INTERVAL delta applications.
+ */
+public class RevisionLog {
+
+    static final int SNAPSHOT_INTERVAL = 10;
+    static final int PRUNE_INTERVAL = 50; // thin a note's history every this many revisions
+
+    // Retention: everything from the last hour, then one per hour for a week,
+    // then one per day, and never more than MAX_REVISIONS in total
+    static final long KEEP_ALL_MS = 60L * 60 * 1000;
+    static final long HOURLY_MS = 7L * 24 * 60 * 60 * 1000;
+    static final int MAX_REVISIONS = 200;
+
+    /** One stored revision row. */
+    static class Entry {
+        final int revision;
+        final long createdAt;
+        final boolean snapshot;
+        final byte[] data;
+        final int contentLength;
+
+        Entry(int revision, long createdAt, boolean snapshot, byte[] data, int contentLength) {
+            this.revision = revision;
+            this.createdAt = createdAt;
+            this.snapshot = snapshot;
+            this.data = data;
+            this.contentLength = contentLength;
+        }
+
+        static Entry snapshot(int revision, String content, long createdAt) {
+            return new Entry(revision, createdAt, true, compress(content), content.length());
+        }
+
+        static Entry delta(int revision, String previous, String content, long createdAt) {
+            return new Entry(revision, createdAt, false, TextDelta.compute(previous, content).encode(), content.length());
+        }
+
+        /** This revision's text, given the text of the revision stored before it. */
+        String apply(String previous) {
+            return snapshot ? decompress(data) : TextDelta.decode(data).apply(previous);
+        }
+    }
+
+    /**
+     * The entry recording newContent after previousContent.
+     * deltasSinceSnapshot counts the deltas stored after the latest snapshot.
+     */
+    static Entry next(String previousContent, String newContent, int revision, int deltasSinceSnapshot, long now) {
+        if (deltasSinceSnapshot >= SNAPSHOT_INTERVAL - 1) {
+            return Entry.snapshot(revision, newContent, now);
+        }
+        return Entry.delta(revision, previousContent, newContent, now);
+    }
+
+    static boolean shouldPrune(int revision) {
+        return revision % PRUNE_INTERVAL == 0;
+    }
+
+    /** Rebuilds the text of the last entry of a chain that starts with a snapshot. */
+    static String reconstruct(List<Entry> chain) {
+        String text = null;
+        for (Entry entry : chain) {
+            text = entry.apply(text);
+        }
+        return text;
+    }
+
+    /**
+     * Applies the retention policy to a note's full history (oldest first)
+     * and returns the surviving revisions re-encoded as a fresh chain.
+     * Revision numbers are kept, so they stay stable for the UI.
+     */
+    static List<Entry> thin(List<Entry> history, long now) {
+        Set<Integer> keep = new HashSet<>();
+        Set<Long> buckets = new HashSet<>();
+        for (int i = history.size() - 1; i >= 0 && keep.size() < MAX_REVISIONS; i--) {
+            Entry entry = history.get(i);
+            long age = now - entry.createdAt;
+            if (i == history.size() - 1 || age < KEEP_ALL_MS) {
+                keep.add(entry.revision);
+                continue;
+            }
+            // Newest first, so the first entry seen in a bucket is the one kept
+            long bucket = age < HOURLY_MS
+                    ? entry.createdAt / (60L * 60 * 1000)
+                    : -(entry.createdAt / (24L * 60 * 60 * 1000)) - 1;
+            if (buckets.add(bucket)) keep.add(entry.revision);
+        }
+
+        List<Entry> kept = new ArrayList<>(keep.size());
+        String text = null;
+        String lastKeptText = null;
+        int deltas = 0;
+        for (Entry entry : history) {
+            text = entry.apply(text);
+            if (!keep.contains(entry.revision)) continue;
+            if (lastKeptText == null || deltas >= SNAPSHOT_INTERVAL - 1) {
+                kept.add(Entry.snapshot(entry.revision, text, entry.createdAt));
+                deltas = 0;
+            } else {
+                kept.add(Entry.delta(entry.revision, lastKeptText, text, entry.createdAt));
+                deltas++;
+            }
+            lastKeptText = text;
+        }
+        return kept;
+    }
+
+    static byte[] compress(String text) {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    static String decompress(byte[] data) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) break;
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt revision snapshot", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
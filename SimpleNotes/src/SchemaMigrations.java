@@ -0,0 +1,214 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered schema changes for the SQLite database. The version reached is
+ * stored in PRAGMA user_version, so a database that is up to date costs a
+ * single pragma read at startup. Each step runs in its own transaction
+ * together with the version bump, and is written to be safe on databases
+ * created before versioning, where some of its changes already exist.
+ * New steps are appended at the end and never reordered.
+ */
+public class SchemaMigrations {
+
+    /** One step; it runs once, on databases older than its version. */
+    interface Migration {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    private static final class Step {
+        final int version;
+        final String description;
+        final Migration migration;
+
+        Step(int version, String description, Migration migration) {
+            this.version = version;
+            this.description = description;
+            this.migration = migration;
+        }
+    }
+
+    private static final List<Step> STEPS = new ArrayList<>();
+
+    private static void step(String description, Migration migration) {
+        STEPS.add(new Step(STEPS.size() + 1, description, migration));
+    }
+
+    static {
+        step("notes table", stmt -> {
+            stmt.execute("CREATE TABLE IF NOT EXISTS notes ("
+                    + " id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + " title TEXT NOT NULL,"
+                    + " content TEXT,"
+                    + " last_modified INTEGER NOT NULL,"
+                    + " background_color TEXT,"
+                    + " font_family TEXT,"
+                    + " category TEXT"
+                    + ")");
+            // Databases from the first releases lack these
+            addColumn(stmt, "notes", "background_color", "TEXT");
+            addColumn(stmt, "notes", "font_family", "TEXT");
+            addColumn(stmt, "notes", "category", "TEXT");
+        });
+
+        step("category index", stmt -> {
+            // Notes saved before categories existed belong to Personal;
+            // backfilling them lets the category index serve every page query
+            stmt.execute("UPDATE notes SET category = 'Personal' WHERE category IS NULL");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_notes_category_modified ON notes(category, last_modified, id)");
+        });
+
+        step("full-text search index", stmt -> {
+            // External-content FTS5 table over notes, kept in sync by triggers
+            boolean exists = tableExists(stmt, "notes_fts");
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS notes_fts USING fts5("
+                    + "title, content, content='notes', content_rowid='id', "
+                    + "tokenize='unicode61 remove_diacritics 2')");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_fts_ai AFTER INSERT ON notes BEGIN"
+                    + " INSERT INTO notes_fts(rowid, title, content) VALUES (new.id, new.title, new.content);"
+                    + " END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_fts_ad AFTER DELETE ON notes BEGIN"
+                    + " INSERT INTO notes_fts(notes_fts, rowid, title, content) VALUES ('delete', old.id, old.title, old.content);"
+                    + " END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_fts_au AFTER UPDATE OF title, content ON notes BEGIN"
+                    + " INSERT INTO notes_fts(notes_fts, rowid, title, content) VALUES ('delete', old.id, old.title, old.content);"
+                    + " INSERT INTO notes_fts(rowid, title, content) VALUES (new.id, new.title, new.content);"
+                    + " END");
+            if (!exists) {
+                // Index the notes that were written before the FTS table existed
+                stmt.execute("INSERT INTO notes_fts(notes_fts) VALUES ('rebuild')");
+            }
+        });
+
+        step("revision history", stmt -> {
+            // Content history: snapshots plus deltas, see RevisionLog
+            stmt.execute("CREATE TABLE IF NOT EXISTS note_revisions ("
+                    + " note_id INTEGER NOT NULL,"
+                    + " revision INTEGER NOT NULL,"
+                    + " created_at INTEGER NOT NULL,"
+                    + " is_snapshot INTEGER NOT NULL,"
+                    + " data BLOB NOT NULL,"
+                    + " content_length INTEGER NOT NULL,"
+                    + " PRIMARY KEY (note_id, revision)"
+                    + ")");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_revisions_ad AFTER DELETE ON notes BEGIN"
+                    + " DELETE FROM note_revisions WHERE note_id = old.id;"
+                    + " END");
+        });
+
+        step("preview column", stmt -> {
+            // Plain-text start of the content, see PreviewText; NULL until backfilled
+            addColumn(stmt, "notes", "preview", "TEXT");
+        });
+
+        step("categories table", stmt -> {
+            // Notebooks become rows that notes reference by id, each with a
+            // note count kept by triggers so the sidebar never counts notes
+            stmt.execute("CREATE TABLE IF NOT EXISTS categories ("
+                    + " id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + " name TEXT NOT NULL UNIQUE,"
+                    + " note_count INTEGER NOT NULL DEFAULT 0"
+                    + ")");
+            stmt.execute("INSERT OR IGNORE INTO categories(name) VALUES ('Personal'), ('Work'), ('Ideas')");
+            addColumn(stmt, "notes", "category_id", "INTEGER REFERENCES categories(id)");
+            if (columnExists(stmt, "notes", "category")) {
+                stmt.execute("INSERT OR IGNORE INTO categories(name)"
+                        + " SELECT DISTINCT category FROM notes WHERE category IS NOT NULL");
+                stmt.execute("UPDATE notes SET category_id ="
+                        + " (SELECT id FROM categories WHERE name = COALESCE(notes.category, 'Personal'))");
+                // The name column and its index are replaced by category_id
+                stmt.execute("DROP INDEX IF EXISTS idx_notes_category_modified");
+                stmt.execute("ALTER TABLE notes DROP COLUMN category");
+            }
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_notes_category_id_modified ON notes(category_id, last_modified, id)");
+            stmt.execute("UPDATE categories SET note_count = (SELECT COUNT(*) FROM notes WHERE category_id = categories.id)");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_categories_ai AFTER INSERT ON notes BEGIN"
+                    + " UPDATE categories SET note_count = note_count + 1 WHERE id = new.category_id;"
+                    + " END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_categories_ad AFTER DELETE ON notes BEGIN"
+                    + " UPDATE categories SET note_count = note_count - 1 WHERE id = old.category_id;"
+                    + " END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_categories_au AFTER UPDATE OF category_id ON notes"
+                    + " WHEN old.category_id IS NOT new.category_id BEGIN"
+                    + " UPDATE categories SET note_count = note_count - 1 WHERE id = old.category_id;"
+                    + " UPDATE categories SET note_count = note_count + 1 WHERE id = new.category_id;"
+                    + " END");
+        });
+
+        step("drawings", stmt -> {
+            // One stroke log per note, see StrokeLog; kept apart so listing notes never reads it
+            stmt.execute("CREATE TABLE IF NOT EXISTS note_drawings ("
+                    + " note_id INTEGER PRIMARY KEY,"
+                    + " data BLOB NOT NULL,"
+                    + " updated_at INTEGER NOT NULL"
+                    + ")");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS notes_drawings_ad AFTER DELETE ON notes BEGIN"
+                    + " DELETE FROM note_drawings WHERE note_id = old.id;"
+                    + " END");
+        });
+    }
+
+    private SchemaMigrations() {
+    }
+
+    /** The version a fully migrated database has. */
+    public static int latestVersion() {
+        return STEPS.size();
+    }
+
+    /**
+     * Brings the database up to the latest version.
+     * @return the number of steps applied
+     */
+    public static int migrate(ConnectionManager connections) throws SQLException {
+        int current = connections.read(conn -> {
+            try (Statement stmt = conn.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+        if (current >= latestVersion()) return 0;
+
+        int applied = 0;
+        for (Step step : STEPS) {
+            if (step.version <= current) continue;
+            long start = System.nanoTime();
+            connections.transaction(conn -> {
+                try (Statement stmt = conn.getConnection().createStatement()) {
+                    step.migration.apply(stmt);
+                    // Pragmas take no parameters; the version is our own int
+                    stmt.execute("PRAGMA user_version = " + step.version);
+                }
+                return null;
+            });
+            applied++;
+            System.out.println("Migration " + step.version + " (" + step.description + ") applied in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        }
+        return applied;
+    }
+
+    private static boolean tableExists(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.next();
+        }
+    }
+
+    private static boolean columnExists(Statement stmt, String table, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (rs.getString("name").equalsIgnoreCase(column)) return true;
+            }
+        }
+        return false;
+    }
+
+    // ADD COLUMN has no IF NOT EXISTS, so look first instead of catching the error
+    static void addColumn(Statement stmt, String table, String column, String type) throws SQLException {
+        if (columnExists(stmt, table, column)) return;
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+    }
+}
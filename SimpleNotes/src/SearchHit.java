@@ -0,0 +1,53 @@
+import java.util.Date;
+
+/**
+ * A single full-text search result: enough to show the note in the list
+ * without loading its body.
+ */
+public class SearchHit {
+    private final int noteId;
+    private final String title;
+    private final String snippet;
+    private final Date lastModified;
+    private final String category;
+    private final double rank;
+
+    public SearchHit(int noteId, String title, String snippet, Date lastModified, String category, double rank) {
+        this.noteId = noteId;
+        this.title = title;
+        this.snippet = snippet;
+        this.lastModified = lastModified;
+        this.category = category;
+        this.rank = rank;
+    }
+
+    public int getNoteId() {
+        return noteId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    // Lower is better, matching SQLite's bm25()
+    public double getRank() {
+        return rank;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
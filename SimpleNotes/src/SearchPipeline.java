@@ -0,0 +1,123 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs note searches for the search field without blocking typing.
+ * Keystrokes restart a short debounce timer; when it fires the query runs
+ * on a single background thread. A newer query cancels the one before it,
+ * and only the newest query's results are handed back on the EDT.
+ * submit and cancel must be called on the EDT.
+ */
+public class SearchPipeline {
+
+    /** Runs one query. Called on the search thread. */
+    public interface Searcher {
+        List<SearchHit> search(String query, String category) throws Exception;
+    }
+
+    private final Searcher searcher;
+    private final Consumer<List<SearchHit>> resultListener;
+    private final Timer debounceTimer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "note-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // EDT only
+    private String pendingQuery;
+    private String pendingCategory;
+    private long pendingSince;
+    private Future<?> running;
+    private volatile long generation = 0; // the newest query; older results are dropped
+
+    // Latency stats, updated on the EDT when a result is published
+    private long queriesRun = 0;
+    private long queriesDropped = 0;
+    private long totalLatencyMs = 0;
+    private long maxLatencyMs = 0;
+
+    public SearchPipeline(int debounceMs, Searcher searcher, Consumer<List<SearchHit>> resultListener) {
+        this.searcher = searcher;
+        this.resultListener = resultListener;
+        this.debounceTimer = new Timer(debounceMs, e -> start());
+        debounceTimer.setRepeats(false);
+    }
+
+    /** Schedules a search, replacing any query that has not published yet. */
+    public void submit(String query, String category) {
+        generation++;
+        if (pendingQuery == null) pendingSince = System.nanoTime();
+        pendingQuery = query;
+        pendingCategory = category;
+        debounceTimer.restart();
+    }
+
+    /** Drops the pending query and any result still on its way. */
+    public void cancel() {
+        debounceTimer.stop();
+        generation++;
+        pendingQuery = null;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /** Stops searching for good; call on the EDT when the window closes. */
+    public void close() {
+        if (executor.isShutdown()) return;
+        cancel();
+        executor.shutdownNow();
+        System.out.println("Search pipeline stopped (" + getStats() + ").");
+    }
+
+    private void start() {
+        if (pendingQuery == null) return;
+        if (running != null && !running.isDone()) {
+            running.cancel(true);
+            queriesDropped++;
+        }
+
+        long queryGeneration = generation;
+        String query = pendingQuery;
+        String category = pendingCategory;
+        long requestedAt = pendingSince;
+        pendingQuery = null;
+
+        running = executor.submit(() -> {
+            if (queryGeneration != generation) return; // superseded while queued
+            List<SearchHit> hits;
+            try {
+                hits = searcher.search(query, category);
+            } catch (Exception e) {
+                if (queryGeneration == generation) System.out.println("Search failed: " + e.getMessage());
+                return;
+            }
+            if (queryGeneration != generation || Thread.currentThread().isInterrupted()) return;
+            SwingUtilities.invokeLater(() -> {
+                if (queryGeneration != generation) return;
+                // From the first keystroke of this query to its results being shown
+                record((System.nanoTime() - requestedAt) / 1_000_000);
+                resultListener.accept(hits);
+            });
+        });
+    }
+
+    private void record(long latencyMs) {
+        queriesRun++;
+        totalLatencyMs += latencyMs;
+        maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+    }
+
+    public String getStats() {
+        long average = queriesRun == 0 ? 0 : totalLatencyMs / queriesRun;
+        return "queries: " + queriesRun + ", cancelled: " + queriesDropped
+                + ", latency avg: " + average + " ms, max: " + maxLatencyMs + " ms";
+    }
+}
@@ -0,0 +1,234 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A note's drawing as the strokes that made it, in the order they were
+ * drawn. Replaying the strokes onto an empty canvas rebuilds the picture,
+ * so a sketch is stored in a few kilobytes instead of as a bitmap.
+ *
+ * Binary layout: a version byte and the stroke count, then per stroke the
+ * tool, the ARGB color (4 bytes), the brush size (for a fill, its color
+ * tolerance), for a fill the area it was limited to (x, y, width and
+ * height) and the point count, followed by the points. Each point is
+ * stored as the difference from the one before it; mouse drags move a few
+ * pixels at a time, so nearly every coordinate fits in one zigzag varint
+ * byte.
+ */
+public class StrokeLog {
+
+    public enum Tool { PEN, ERASER, FILL }
+
+    private static final int VERSION = 1;
+
+    /**
+     * One press-drag-release of a tool. A fill is a single seed point plus
+     * the area it was limited to, the view at the time, so it replays the
+     * same whatever the window size.
+     */
+    public static final class Stroke {
+        private final Tool tool;
+        private final int argb;
+        private final int size;
+        private final Rectangle area; // fills only
+        private int[] points; // x, y interleaved
+        private int pointCount;
+
+        Stroke(Tool tool, int argb, int size, Rectangle area, int capacity) {
+            this.tool = tool;
+            this.argb = argb;
+            this.size = size;
+            this.area = area;
+            this.points = new int[Math.max(2, capacity * 2)];
+        }
+
+        public void add(int x, int y) {
+            if (pointCount * 2 == points.length) points = Arrays.copyOf(points, points.length * 2);
+            points[pointCount * 2] = x;
+            points[pointCount * 2 + 1] = y;
+            pointCount++;
+        }
+
+        public Tool getTool() {
+            return tool;
+        }
+
+        public Color getColor() {
+            return new Color(argb, true);
+        }
+
+        /** The brush size, or for a fill the color tolerance. */
+        public int getSize() {
+            return size;
+        }
+
+        /** For a fill, the area it may not spread beyond; null for other tools. */
+        public Rectangle getArea() {
+            return area != null ? new Rectangle(area) : null;
+        }
+
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        public int getX(int i) {
+            return points[i * 2];
+        }
+
+        public int getY(int i) {
+            return points[i * 2 + 1];
+        }
+    }
+
+    private final List<Stroke> strokes = new ArrayList<>();
+
+    /** Starts a stroke at the given point; later points are added to it as the mouse moves. */
+    public Stroke begin(Tool tool, Color color, int size, int x, int y) {
+        Stroke stroke = new Stroke(tool, color.getRGB(), size, null, 16);
+        stroke.add(x, y);
+        strokes.add(stroke);
+        return stroke;
+    }
+
+    /** Logs a fill from (x, y) that could not spread beyond area. */
+    public Stroke fill(Color color, int tolerance, int x, int y, Rectangle area) {
+        Stroke stroke = new Stroke(Tool.FILL, color.getRGB(), tolerance, new Rectangle(area), 1);
+        stroke.add(x, y);
+        strokes.add(stroke);
+        return stroke;
+    }
+
+    /** Forgets every stroke, as the Clear button wipes the whole canvas. */
+    public void clear() {
+        strokes.clear();
+    }
+
+    public boolean isEmpty() {
+        return strokes.isEmpty();
+    }
+
+    public int size() {
+        return strokes.size();
+    }
+
+    /** Keeps the first count strokes and returns the ones after them, for undo. */
+    public List<Stroke> truncate(int count) {
+        List<Stroke> tail = strokes.subList(count, strokes.size());
+        List<Stroke> removed = new ArrayList<>(tail);
+        tail.clear();
+        return removed;
+    }
+
+    public void appendAll(List<Stroke> more) {
+        strokes.addAll(more);
+    }
+
+    public List<Stroke> getStrokes() {
+        return Collections.unmodifiableList(strokes);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + strokes.size() * 32);
+        out.write(VERSION);
+        writeVarint(out, strokes.size());
+        for (Stroke stroke : strokes) {
+            out.write(stroke.tool.ordinal());
+            out.write(stroke.argb >>> 24);
+            out.write(stroke.argb >>> 16);
+            out.write(stroke.argb >>> 8);
+            out.write(stroke.argb);
+            writeVarint(out, stroke.size);
+            if (stroke.tool == Tool.FILL) {
+                writeVarint(out, zigzag(stroke.area.x));
+                writeVarint(out, zigzag(stroke.area.y));
+                writeVarint(out, stroke.area.width);
+                writeVarint(out, stroke.area.height);
+            }
+            writeVarint(out, stroke.pointCount);
+            int prevX = 0, prevY = 0;
+            for (int i = 0; i < stroke.pointCount; i++) {
+                int x = stroke.getX(i), y = stroke.getY(i);
+                writeVarint(out, zigzag(x - prevX));
+                writeVarint(out, zigzag(y - prevY));
+                prevX = x;
+                prevY = y;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** Reads a log written by encode; throws IllegalArgumentException if the data is damaged. */
+    public static StrokeLog decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.readByte();
+        if (version != VERSION) throw new IllegalArgumentException("Unknown stroke log version " + version);
+        StrokeLog log = new StrokeLog();
+        Tool[] tools = Tool.values();
+        int count = in.readVarint();
+        for (int s = 0; s < count; s++) {
+            int tool = in.readByte();
+            if (tool >= tools.length) throw new IllegalArgumentException("Unknown tool " + tool);
+            int argb = in.readByte() << 24 | in.readByte() << 16 | in.readByte() << 8 | in.readByte();
+            int size = in.readVarint();
+            Rectangle area = null;
+            if (tools[tool] == Tool.FILL) {
+                area = new Rectangle(unzigzag(in.readVarint()), unzigzag(in.readVarint()), in.readVarint(), in.readVarint());
+                if (area.width <= 0 || area.height <= 0) throw new IllegalArgumentException("Empty fill area");
+            }
+            int points = in.readVarint();
+            Stroke stroke = new Stroke(tools[tool], argb, size, area, Math.min(points, data.length));
+            int x = 0, y = 0;
+            for (int i = 0; i < points; i++) {
+                x += unzigzag(in.readVarint());
+                y += unzigzag(in.readVarint());
+                stroke.add(x, y);
+            }
+            log.strokes.add(stroke);
+        }
+        return log;
+    }
+
+    private static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (pos >= data.length) throw new IllegalArgumentException("Stroke log is truncated");
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint in stroke log");
+        }
+    }
+}
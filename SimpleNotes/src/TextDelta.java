@@ -0,0 +1,92 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compact edit between two versions of a text: replace deleteLength
+ * characters at start with inserted. Computed from the common prefix and
+ * suffix, so a typical save (one region typed or deleted) encodes to a few
+ * bytes plus the new text, regardless of how long the note is.
+ */
+public class TextDelta {
+    private final int start;
+    private final int deleteLength;
+    private final String inserted;
+
+    public TextDelta(int start, int deleteLength, String inserted) {
+        this.start = start;
+        this.deleteLength = deleteLength;
+        this.inserted = inserted;
+    }
+
+    /** The smallest single-region edit that turns oldText into newText. */
+    public static TextDelta compute(String oldText, String newText) {
+        int oldLen = oldText.length();
+        int newLen = newText.length();
+        int max = Math.min(oldLen, newLen);
+
+        int prefix = 0;
+        while (prefix < max && oldText.charAt(prefix) == newText.charAt(prefix)) prefix++;
+        // Never split a surrogate pair, so the inserted text stays valid UTF-16
+        if (prefix > 0 && Character.isHighSurrogate(oldText.charAt(prefix - 1))) prefix--;
+
+        int suffix = 0;
+        while (suffix < max - prefix
+                && oldText.charAt(oldLen - 1 - suffix) == newText.charAt(newLen - 1 - suffix)) suffix++;
+        if (suffix > 0 && Character.isLowSurrogate(oldText.charAt(oldLen - suffix))) suffix--;
+
+        return new TextDelta(prefix, oldLen - prefix - suffix, newText.substring(prefix, newLen - suffix));
+    }
+
+    public String apply(String text) {
+        return text.substring(0, start) + inserted + text.substring(start + deleteLength);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getDeleteLength() {
+        return deleteLength;
+    }
+
+    public String getInserted() {
+        return inserted;
+    }
+
+    // Layout: varint start, varint deleteLength, then the inserted text as UTF-8
+    public byte[] encode() {
+        byte[] text = inserted.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length + 10);
+        writeVarInt(out, start);
+        writeVarInt(out, deleteLength);
+        out.write(text, 0, text.length);
+        return out.toByteArray();
+    }
+
+    public static TextDelta decode(byte[] data) {
+        int[] pos = {0};
+        int start = readVarInt(data, pos);
+        int deleteLength = readVarInt(data, pos);
+        String inserted = new String(data, pos[0], data.length - pos[0], StandardCharsets.UTF_8);
+        return new TextDelta(start, deleteLength, inserted);
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import javax.swing.BorderFactory;
+import javax.swing.border.Border;
+import java.awt.Color;
+import java.awt.Font;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The app's colours, borders and fonts. DARK and LIGHT are built once and
+ * never change, so components keep references to their Colors instead of
+ * allocating new ones on every hover or theme switch. The registry part
+ * holds the current theme and tells listeners when it changes; its methods
+ * must be called on the EDT.
+ */
+public final class Theme {
+
+    /** Fonts shared by every component, whatever the theme. */
+    public static final class Fonts {
+        public static final Font APP_TITLE = new Font("Segoe UI", Font.BOLD, 18);
+        public static final Font HEADER = new Font("Segoe UI", Font.BOLD, 24);
+        public static final Font DIALOG_TITLE = new Font("Segoe UI", Font.BOLD, 20);
+        public static final Font ADD_BUTTON = new Font("Segoe UI", Font.BOLD, 20);
+        public static final Font CREATE_BUTTON = new Font("Segoe UI", Font.BOLD, 48);
+        public static final Font NOTE_TITLE = new Font("Segoe UI", Font.BOLD, 32);
+        public static final Font ROW_TITLE = new Font("Segoe UI", Font.BOLD, 14);
+        public static final Font SECTION = new Font("Segoe UI", Font.BOLD, 12);
+        public static final Font EMPTY_STATE = new Font("Segoe UI", Font.PLAIN, 18);
+        public static final Font BODY = new Font("Segoe UI", Font.PLAIN, 16);
+        public static final Font MENU = new Font("Segoe UI", Font.PLAIN, 14);
+        public static final Font SMALL = new Font("Segoe UI", Font.PLAIN, 12);
+        public static final Font SMALL_ITALIC = new Font("Segoe UI", Font.ITALIC, 12);
+
+        private Fonts() {
+        }
+    }
+
+    // Shared by both palettes
+    public static final Color MUTED = Color.GRAY;
+    public static final Color ACCENT = new Color(100, 150, 255);
+    public static final Color DANGER = new Color(255, 100, 100);
+
+    public static final Theme DARK = new Theme(true,
+            Color.WHITE, new Color(220, 220, 220),
+            new Color(45, 45, 45), new Color(30, 30, 30), new Color(50, 50, 50), new Color(60, 60, 60),
+            new Color(30, 30, 30), new Color(20, 20, 20), new Color(40, 40, 40), new Color(50, 50, 50),
+            new Color(45, 45, 45), new Color(18, 18, 18), new Color(40, 40, 40),
+            new Color(80, 80, 80), new Color(30, 30, 30));
+
+    public static final Theme LIGHT = new Theme(false,
+            Color.BLACK, Color.BLACK,
+            new Color(240, 240, 240), new Color(200, 200, 200), new Color(230, 230, 230), new Color(220, 220, 220),
+            new Color(255, 255, 255), new Color(220, 220, 220), new Color(245, 245, 245), new Color(235, 235, 235),
+            new Color(240, 240, 240), new Color(255, 255, 255), new Color(230, 230, 230),
+            new Color(200, 200, 200), new Color(240, 240, 240));
+
+    private final boolean dark;
+    public final Color foreground;      // titles and primary text
+    public final Color editorText;      // note body
+    public final Color sidebarBg;       // also dialogs
+    public final Color sidebarEdge;
+    public final Color sidebarHover;
+    public final Color selectedBg;      // selected sidebar item, dialog buttons
+    public final Color listBg;
+    public final Color listEdge;
+    public final Color rowBg;
+    public final Color rowHover;        // also the selected row
+    public final Color fieldBg;
+    public final Color editorBg;
+    public final Color toolbarBg;
+    public final Color scrollThumb;
+    public final Color scrollTrack;
+
+    // Borders are immutable too, so one instance serves every component
+    public final Border sidebarBorder;
+    public final Border listBorder;
+    public final Border searchFieldBorder;
+
+    private Theme(boolean dark, Color foreground, Color editorText,
+                  Color sidebarBg, Color sidebarEdge, Color sidebarHover, Color selectedBg,
+                  Color listBg, Color listEdge, Color rowBg, Color rowHover,
+                  Color fieldBg, Color editorBg, Color toolbarBg,
+                  Color scrollThumb, Color scrollTrack) {
+        this.dark = dark;
+        this.foreground = foreground;
+        this.editorText = editorText;
+        this.sidebarBg = sidebarBg;
+        this.sidebarEdge = sidebarEdge;
+        this.sidebarHover = sidebarHover;
+        this.selectedBg = selectedBg;
+        this.listBg = listBg;
+        this.listEdge = listEdge;
+        this.rowBg = rowBg;
+        this.rowHover = rowHover;
+        this.fieldBg = fieldBg;
+        this.editorBg = editorBg;
+        this.toolbarBg = toolbarBg;
+        this.scrollThumb = scrollThumb;
+        this.scrollTrack = scrollTrack;
+
+        this.sidebarBorder = BorderFactory.createMatteBorder(0, 0, 0, 1, sidebarEdge);
+        this.listBorder = BorderFactory.createMatteBorder(0, 0, 0, 1, listEdge);
+        this.searchFieldBorder = BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(fieldBg, 5),
+                BorderFactory.createEmptyBorder(5, 10, 5, 10));
+    }
+
+    public boolean isDark() {
+        return dark;
+    }
+
+    // --- Registry ---
+
+    private static Theme current = DARK;
+    private static final List<Consumer<Theme>> listeners = new CopyOnWriteArrayList<>();
+
+    public static Theme current() {
+        return current;
+    }
+
+    public static void addListener(Consumer<Theme> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Consumer<Theme> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Switches the theme and notifies every listener once. Listeners only
+     * swap references to the new palette; the repaints they cause are
+     * coalesced by Swing into a single pass.
+     */
+    public static void set(Theme theme) {
+        if (theme == current) return;
+        current = theme;
+        for (Consumer<Theme> listener : listeners) {
+            listener.accept(theme);
+        }
+    }
+}
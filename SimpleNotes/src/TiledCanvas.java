@@ -0,0 +1,335 @@
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An unbounded, transparent ARGB drawing surface stored as fixed-size
+ * tiles. A tile is allocated the first time ink lands on it and freed
+ * again once erasing leaves it fully transparent, so memory follows the
+ * amount of ink rather than the size of the window, and resizing or
+ * panning the view allocates nothing. Coordinates may be negative.
+ * Must be used on the EDT.
+ */
+public class TiledCanvas {
+
+    public static final int TILE_SIZE = 256;
+    private static final int SHIFT = 8; // log2(TILE_SIZE)
+
+    private final Map<Long, BufferedImage> tiles = new HashMap<>();
+
+    // While recording, the pixels each tile had before its first change, so
+    // the change can be undone; NO_TILE marks a tile that did not exist
+    private static final int[] NO_TILE = new int[0];
+    private Map<Long, int[]> recording;
+
+    /**
+     * The pixels of some boxes, each within one tile, as saved for undo.
+     * Swapping a patch with the canvas undoes its change, and swapping it
+     * again redoes it.
+     */
+    public static final class Patch {
+        private final List<Rectangle> boxes = new ArrayList<>();
+        private final List<int[]> pixels = new ArrayList<>(); // null: fully transparent
+
+        /** Memory held by the saved pixels. */
+        public long getBytes() {
+            long bytes = 0;
+            for (int[] p : pixels) {
+                if (p != null) bytes += (long) p.length * 4;
+            }
+            return bytes;
+        }
+    }
+
+    private static long key(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+    }
+
+    private static int[] pixels(BufferedImage tile) {
+        return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    }
+
+    private BufferedImage createTile(int tx, int ty) {
+        BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        tiles.put(key(tx, ty), tile);
+        return tile;
+    }
+
+    /**
+     * One stroke of a tool. It keeps a Graphics open on every tile it has
+     * touched until it is closed, so drawing a segment costs no setup.
+     */
+    public final class Brush {
+        private final Color color;
+        private final BasicStroke stroke;
+        private final boolean erases;
+        private final Map<Long, Graphics2D> open = new HashMap<>();
+
+        private Brush(Color color, BasicStroke stroke, boolean erases) {
+            this.color = color;
+            this.stroke = stroke;
+            this.erases = erases;
+        }
+
+        public void dot(int x, int y, int size) {
+            int half = size / 2;
+            for (Graphics2D g : graphics(x - half - 1, y - half - 1, x - half + size + 1, y - half + size + 1)) {
+                g.fillOval(x - half, y - half, size, size);
+            }
+        }
+
+        public void segment(int x1, int y1, int x2, int y2) {
+            int pad = (int) Math.ceil(stroke.getLineWidth() / 2) + 1;
+            for (Graphics2D g : graphics(Math.min(x1, x2) - pad, Math.min(y1, y2) - pad,
+                    Math.max(x1, x2) + pad, Math.max(y1, y2) + pad)) {
+                g.drawLine(x1, y1, x2, y2);
+            }
+        }
+
+        // Graphics for the tiles under a box, opening them as needed.
+        // Only ink creates tiles; erasing where there are none changes nothing.
+        private Iterable<Graphics2D> graphics(int left, int top, int right, int bottom) {
+            List<Graphics2D> result = new ArrayList<>(4);
+            for (int ty = top >> SHIFT; ty <= bottom >> SHIFT; ty++) {
+                for (int tx = left >> SHIFT; tx <= right >> SHIFT; tx++) {
+                    long k = key(tx, ty);
+                    Graphics2D g = open.get(k);
+                    if (g == null) {
+                        BufferedImage tile = tiles.get(k);
+                        if (tile == null && erases) continue;
+                        touch(k);
+                        if (tile == null) tile = createTile(tx, ty);
+                        g = tile.createGraphics();
+                        g.translate(-(tx << SHIFT), -(ty << SHIFT));
+                        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                        if (erases) {
+                            g.setComposite(AlphaComposite.Clear);
+                            g.setColor(new Color(0, 0, 0, 0));
+                        } else {
+                            g.setColor(color);
+                        }
+                        g.setStroke(stroke);
+                        open.put(k, g);
+                    }
+                    result.add(g);
+                }
+            }
+            return result;
+        }
+
+        /** Finishes the stroke, freeing any tile the eraser left empty. */
+        public void close() {
+            for (Map.Entry<Long, Graphics2D> entry : open.entrySet()) {
+                entry.getValue().dispose();
+                if (erases) freeIfEmpty(entry.getKey());
+            }
+            open.clear();
+        }
+    }
+
+    /** Starts a stroke; close it when the mouse is released. */
+    public Brush brush(Color color, BasicStroke stroke, boolean eraser) {
+        return new Brush(color, stroke, eraser);
+    }
+
+    /**
+     * Draws the tiles that overlap the view. The view's top-left corner is
+     * at (originX, originY) on the canvas; clip is in view coordinates.
+     */
+    public void paint(Graphics2D g, int originX, int originY, Rectangle clip) {
+        int left = originX + clip.x, top = originY + clip.y;
+        int right = left + clip.width - 1, bottom = top + clip.height - 1;
+        for (int ty = top >> SHIFT; ty <= bottom >> SHIFT; ty++) {
+            for (int tx = left >> SHIFT; tx <= right >> SHIFT; tx++) {
+                BufferedImage tile = tiles.get(key(tx, ty));
+                if (tile != null) g.drawImage(tile, (tx << SHIFT) - originX, (ty << SHIFT) - originY, null);
+            }
+        }
+    }
+
+    /**
+     * Flood fills from (x, y) within area, treating everything outside it as
+     * a border. The area's pixels are copied into one flat array for
+     * FloodFill and the changed part is copied back. The array lives only
+     * for the fill, so between fills the canvas holds nothing but tiles.
+     * @return the changed box in canvas coordinates, or null if nothing changed
+     */
+    public Rectangle fill(int x, int y, int argb, int tolerance, Rectangle area) {
+        if (!area.contains(x, y)) return null;
+        int w = area.width, h = area.height;
+        int[] flat = new int[w * h];
+        copy(flat, area, area, true, false);
+
+        Rectangle changed = FloodFill.fill(flat, w, h, x - area.x, y - area.y, argb, tolerance);
+        if (changed == null) return null;
+        changed.translate(area.x, area.y);
+        // Only a fill with a transparent color can leave a tile empty
+        copy(flat, area, changed, false, (argb >>> 24) == 0);
+        return changed;
+    }
+
+    // Copies the part of region that lies on each tile between the tiles and
+    // flat, which holds area row by row. Missing tiles read as transparent and
+    // are only created when ink is written to them.
+    private void copy(int[] flat, Rectangle area, Rectangle region, boolean toFlat, boolean freeEmpty) {
+        int left = region.x, top = region.y;
+        int right = left + region.width - 1, bottom = top + region.height - 1;
+        for (int ty = top >> SHIFT; ty <= bottom >> SHIFT; ty++) {
+            for (int tx = left >> SHIFT; tx <= right >> SHIFT; tx++) {
+                int x0 = Math.max(left, tx << SHIFT), x1 = Math.min(right, (tx << SHIFT) + TILE_SIZE - 1);
+                int y0 = Math.max(top, ty << SHIFT), y1 = Math.min(bottom, (ty << SHIFT) + TILE_SIZE - 1);
+                int span = x1 - x0 + 1;
+                long k = key(tx, ty);
+                BufferedImage tile = tiles.get(k);
+                if (tile == null && (toFlat || !hasInk(flat, area, x0, y0, x1, y1))) continue;
+                if (!toFlat) touch(k);
+                if (tile == null) tile = createTile(tx, ty);
+                int[] tilePixels = pixels(tile);
+                for (int py = y0; py <= y1; py++) {
+                    int tileIndex = ((py - (ty << SHIFT)) << SHIFT) + (x0 - (tx << SHIFT));
+                    int flatIndex = (py - area.y) * area.width + (x0 - area.x);
+                    if (toFlat) {
+                        System.arraycopy(tilePixels, tileIndex, flat, flatIndex, span);
+                    } else {
+                        System.arraycopy(flat, flatIndex, tilePixels, tileIndex, span);
+                    }
+                }
+                if (freeEmpty) freeIfEmpty(k);
+            }
+        }
+    }
+
+    private static boolean hasInk(int[] flat, Rectangle area, int x0, int y0, int x1, int y1) {
+        for (int py = y0; py <= y1; py++) {
+            int row = (py - area.y) * area.width - area.x;
+            for (int px = x0; px <= x1; px++) {
+                if ((flat[row + px] >>> 24) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private void freeIfEmpty(long k) {
+        BufferedImage tile = tiles.get(k);
+        if (tile == null) return;
+        for (int p : pixels(tile)) {
+            if ((p >>> 24) != 0) return;
+        }
+        tiles.remove(k);
+    }
+
+    /** Removes all ink, freeing every tile. */
+    public void clear() {
+        for (long k : tiles.keySet()) touch(k);
+        tiles.clear();
+    }
+
+    /** Starts saving the pixels that the following changes overwrite. */
+    public void startRecording() {
+        recording = new HashMap<>();
+    }
+
+    /**
+     * Stops recording and returns what the changes since startRecording
+     * overwrote, limited to bounds; null bounds keep whole tiles.
+     */
+    public Patch stopRecording(Rectangle bounds) {
+        Patch patch = new Patch();
+        if (recording == null) return patch;
+        for (Map.Entry<Long, int[]> entry : recording.entrySet()) {
+            long k = entry.getKey();
+            Rectangle box = new Rectangle((int) (k >> 32) << SHIFT, (int) k << SHIFT, TILE_SIZE, TILE_SIZE);
+            if (bounds != null) box = box.intersection(bounds);
+            if (box.isEmpty()) continue;
+            int[] before = entry.getValue();
+            patch.boxes.add(box);
+            patch.pixels.add(before == NO_TILE ? null : crop(before, box));
+        }
+        recording = null;
+        return patch;
+    }
+
+    /** Exchanges the patch's pixels with the canvas's, undoing or redoing its change. */
+    public void swap(Patch patch) {
+        for (int i = 0; i < patch.boxes.size(); i++) {
+            Rectangle box = patch.boxes.get(i);
+            int tx = box.x >> SHIFT, ty = box.y >> SHIFT;
+            long k = key(tx, ty);
+            BufferedImage tile = tiles.get(k);
+            int[] saved = patch.pixels.get(i);
+            patch.pixels.set(i, tile != null ? crop(pixels(tile), box) : null);
+            if (tile == null && saved == null) continue;
+            if (tile == null) tile = createTile(tx, ty);
+
+            int[] tilePixels = pixels(tile);
+            for (int row = 0; row < box.height; row++) {
+                int tileIndex = ((box.y + row - (ty << SHIFT)) << SHIFT) + (box.x - (tx << SHIFT));
+                if (saved != null) {
+                    System.arraycopy(saved, row * box.width, tilePixels, tileIndex, box.width);
+                } else {
+                    Arrays.fill(tilePixels, tileIndex, tileIndex + box.width, 0);
+                }
+            }
+            freeIfEmpty(k);
+        }
+    }
+
+    private void touch(long k) {
+        if (recording == null || recording.containsKey(k)) return;
+        BufferedImage tile = tiles.get(k);
+        recording.put(k, tile != null ? pixels(tile).clone() : NO_TILE);
+    }
+
+    // The box's pixels from a whole tile's, or null if they are all transparent
+    private static int[] crop(int[] tilePixels, Rectangle box) {
+        int[] out = new int[box.width * box.height];
+        int originX = box.x >> SHIFT << SHIFT, originY = box.y >> SHIFT << SHIFT;
+        boolean ink = false;
+        for (int row = 0; row < box.height; row++) {
+            int tileIndex = ((box.y + row - originY) << SHIFT) + (box.x - originX);
+            System.arraycopy(tilePixels, tileIndex, out, row * box.width, box.width);
+        }
+        for (int p : out) {
+            if ((p >>> 24) != 0) {
+                ink = true;
+                break;
+            }
+        }
+        return ink ? out : null;
+    }
+
+    public boolean isEmpty() {
+        return tiles.isEmpty();
+    }
+
+    /** The smallest tile-aligned box holding all ink, or null if there is none. */
+    public Rectangle getInkBounds() {
+        Rectangle bounds = null;
+        for (long k : tiles.keySet()) {
+            Rectangle tile = new Rectangle((int) (k >> 32) << SHIFT, (int) k << SHIFT, TILE_SIZE, TILE_SIZE);
+            if (bounds == null) bounds = tile; else bounds.add(tile);
+        }
+        return bounds;
+    }
+
+    /** All ink flattened into one image, for export; null if the canvas is empty. */
+    public BufferedImage toImage() {
+        Rectangle bounds = getInkBounds();
+        if (bounds == null) return null;
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        paint(g, bounds.x, bounds.y, new Rectangle(0, 0, bounds.width, bounds.height));
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Substring index over note titles and content for In-Memory mode.
+ * Every three-character window of the normalized text is packed into a
+ * long, and each trigram maps to a sorted int[] of note ids. A query looks
+ * up the postings of its own trigrams, intersects them starting with the
+ * shortest, and only the surviving candidates are checked with contains.
+ * Changing a note touches just the postings of trigrams it gained or lost.
+ * Not thread-safe; MemoryNoteStore guards it with its lock.
+ */
+public class TrigramIndex {
+
+    // Joins title and content so no trigram spans the two; queries never contain it
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final long[] NO_GRAMS = new long[0];
+
+    /** The normalized text of one note, plus the trigrams it was indexed under. */
+    public static final class Doc {
+        public final String title;
+        public final String content;
+        final long[] grams; // sorted, distinct
+
+        private Doc(String title, String content, long[] grams) {
+            this.title = title;
+            this.content = content;
+            this.grams = grams;
+        }
+    }
+
+    private final MemoryNoteStore.IntMap<Doc> docs = new MemoryNoteStore.IntMap<>();
+    private final PostingMap postings = new PostingMap();
+
+    /** Lower-cases text the same way for indexing and for queries. */
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Indexes a new note, or re-indexes a changed one. */
+    public void put(int id, String title, String content) {
+        String normTitle = normalize(title);
+        String normContent = normalize(content);
+        Doc old = docs.get(id);
+        if (old != null && old.title.equals(normTitle) && old.content.equals(normContent)) return;
+
+        long[] grams = trigrams(normTitle + FIELD_SEPARATOR + normContent);
+        long[] oldGrams = old != null ? old.grams : NO_GRAMS;
+
+        // Both arrays are sorted, so one merge pass finds what was lost and gained
+        int i = 0, j = 0;
+        while (i < oldGrams.length || j < grams.length) {
+            if (j == grams.length || (i < oldGrams.length && oldGrams[i] < grams[j])) {
+                postings.remove(oldGrams[i++], id);
+            } else if (i == oldGrams.length || grams[j] < oldGrams[i]) {
+                postings.add(grams[j++], id);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        docs.put(id, new Doc(normTitle, normContent, grams));
+    }
+
+    public void remove(int id) {
+        Doc old = docs.remove(id);
+        if (old == null) return;
+        for (long gram : old.grams) postings.remove(gram, id);
+    }
+
+    public Doc get(int id) {
+        return docs.get(id);
+    }
+
+    /**
+     * Ids of notes that may contain the normalized query, ascending. Every
+     * note containing it is included; callers confirm the rest. Queries
+     * shorter than a trigram cannot be narrowed and return every note.
+     */
+    public int[] candidates(String normalizedQuery) {
+        long[] grams = trigrams(normalizedQuery);
+        if (grams.length == 0) return allIds();
+
+        int[][] lists = new int[grams.length][];
+        int[] sizes = new int[grams.length];
+        for (int g = 0; g < grams.length; g++) {
+            PostingList list = postings.get(grams[g]);
+            if (list == null) return new int[0];
+            lists[g] = list.ids;
+            sizes[g] = list.size;
+        }
+
+        // Start from the rarest trigram so the running result stays small
+        Integer[] order = new Integer[grams.length];
+        for (int g = 0; g < order.length; g++) order[g] = g;
+        Arrays.sort(order, (a, b) -> Integer.compare(sizes[a], sizes[b]));
+
+        int[] result = Arrays.copyOf(lists[order[0]], sizes[order[0]]);
+        int count = result.length;
+        for (int k = 1; k < order.length && count > 0; k++) {
+            count = intersect(result, count, lists[order[k]], sizes[order[k]]);
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private int[] allIds() {
+        int[] ids = new int[docs.size()];
+        int[] n = {0};
+        docs.forEach((id, doc) -> ids[n[0]++] = id);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // Keeps the ids of result[0..count) that also occur in other, in place
+    private static int intersect(int[] result, int count, int[] other, int otherSize) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < otherSize; i++) {
+            int id = result[i];
+            // Gallop when the other list is much longer
+            if (otherSize - j > 8 * (count - i)) {
+                int found = Arrays.binarySearch(other, j, otherSize, id);
+                j = found >= 0 ? found : -found - 1;
+            } else {
+                while (j < otherSize && other[j] < id) j++;
+            }
+            if (j < otherSize && other[j] == id) result[kept++] = id;
+        }
+        return kept;
+    }
+
+    // Distinct trigrams of text, sorted
+    private static long[] trigrams(String text) {
+        int n = text.length() - 2;
+        if (n <= 0) return NO_GRAMS;
+        long[] grams = new long[n];
+        for (int i = 0; i < n; i++) {
+            grams[i] = pack(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+        }
+        Arrays.sort(grams);
+        int distinct = 1;
+        for (int i = 1; i < n; i++) {
+            if (grams[i] != grams[distinct - 1]) grams[distinct++] = grams[i];
+        }
+        return distinct == n ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    // Three UTF-16 units in 48 bits; bit 48 is set so no key is ever 0
+    private static long pack(char a, char b, char c) {
+        return (1L << 48) | ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /** Note ids for one trigram, kept sorted. */
+    private static final class PostingList {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            // New notes get the highest id so far, so this is usually an append
+            int pos = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                pos = -pos - 1;
+            } else if (pos < size) {
+                return; // already present
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /** Open-addressing map from packed trigram to its posting list. */
+    private static final class PostingMap {
+        private long[] keys = new long[1024];
+        private PostingList[] values = new PostingList[1024];
+        private int size = 0;
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        PostingList get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return null;
+        }
+
+        void add(long key, int id) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                keys[i] = key;
+                values[i] = new PostingList();
+                if (++size * 2 > keys.length) {
+                    grow();
+                    get(key).add(id);
+                    return;
+                }
+            }
+            values[i].add(id);
+        }
+
+        void remove(long key, int id) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == 0) return;
+                i = (i + 1) & mask;
+            }
+            PostingList list = values[i];
+            list.remove(id);
+            if (list.size > 0) return;
+
+            // Drop the empty list, shifting back the rest of its probe run
+            size--;
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            values[gap] = null;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            PostingList[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new PostingList[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldKeys[k] == 0) continue;
+                int i = slot(oldKeys[k], mask);
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+            }
+        }
+    }
+}